@@ -1,7 +1,15 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
 import java.util.LinkedList;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
 import java.util.Queue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 public class Sorting {
 
@@ -83,6 +91,952 @@ public class Sorting {
     return subArr;
   }
 
+  /**
+   * Merge sort for int[], in ascending numeric order.
+   *
+   * It has the same properties and split rule as mergeSort(T[], Comparator):
+   * out-of-place, stable, not adaptive, O(n log n) in every case, and the
+   * extra element of an odd split goes to the right. Elements are merged
+   * as raw ints through one buffer allocated up front, so nothing is boxed.
+   *
+   * You may assume that the passed in array is valid and will not be null.
+   *
+   * @param arr The array to be sorted.
+   */
+  public static void mergeSort(int[] arr) {
+    mergeSort(arr, 0, arr.length, new int[arr.length]);
+  }
+
+  /**
+   * Merge sort for int[] using a primitive comparator, so that custom
+   * orders do not need boxing either. Otherwise the same as
+   * mergeSort(int[]).
+   *
+   * You may assume that the passed in array and comparator are both valid
+   * and will not be null.
+   *
+   * @param arr        The array to be sorted.
+   * @param comparator The IntComparator used to compare the data in arr.
+   */
+  public static void mergeSort(int[] arr, IntComparator comparator) {
+    mergeSort(arr, 0, arr.length, new int[arr.length], comparator);
+  }
+
+  private static void mergeSort(int[] arr, int start, int end,
+      int[] buffer) {
+    if (end - start < 2) {
+      return;
+    }
+    int mid = start + (end - start) / 2;
+    mergeSort(arr, start, mid, buffer);
+    mergeSort(arr, mid, end, buffer);
+
+    System.arraycopy(arr, start, buffer, 0, end - start);
+    int leftIndx = 0;
+    int leftEnd = mid - start;
+    int rightIndx = leftEnd;
+    int rightEnd = end - start;
+    int currIndx = start;
+    while (leftIndx < leftEnd && rightIndx < rightEnd) {
+      if (buffer[leftIndx] <= buffer[rightIndx]) {
+        arr[currIndx++] = buffer[leftIndx++];
+      } else {
+        arr[currIndx++] = buffer[rightIndx++];
+      }
+    }
+    while (leftIndx < leftEnd) {
+      arr[currIndx++] = buffer[leftIndx++];
+    }
+    while (rightIndx < rightEnd) {
+      arr[currIndx++] = buffer[rightIndx++];
+    }
+  }
+
+  /**
+   * Merge sorts arr[start, end) under comparator, using buffer (of length at
+   * least end - start) as scratch space.
+   */
+  private static void mergeSort(int[] arr, int start, int end, int[] buffer,
+      IntComparator comparator) {
+    if (end - start < 2) {
+      return;
+    }
+    int mid = start + (end - start) / 2;
+    mergeSort(arr, start, mid, buffer, comparator);
+    mergeSort(arr, mid, end, buffer, comparator);
+
+    System.arraycopy(arr, start, buffer, 0, end - start);
+    int leftIndx = 0;
+    int leftEnd = mid - start;
+    int rightIndx = leftEnd;
+    int rightEnd = end - start;
+    int currIndx = start;
+    while (leftIndx < leftEnd && rightIndx < rightEnd) {
+      if (comparator.compare(buffer[leftIndx], buffer[rightIndx]) <= 0) {
+        arr[currIndx++] = buffer[leftIndx++];
+      } else {
+        arr[currIndx++] = buffer[rightIndx++];
+      }
+    }
+    while (leftIndx < leftEnd) {
+      arr[currIndx++] = buffer[leftIndx++];
+    }
+    while (rightIndx < rightEnd) {
+      arr[currIndx++] = buffer[rightIndx++];
+    }
+  }
+
+  /**
+   * Merge sort for long[], in ascending numeric order.
+   *
+   * It has the same properties and split rule as mergeSort(T[], Comparator):
+   * out-of-place, stable, not adaptive, O(n log n) in every case, and the
+   * extra element of an odd split goes to the right. Elements are merged
+   * as raw longs through one buffer allocated up front, so nothing is boxed.
+   *
+   * You may assume that the passed in array is valid and will not be null.
+   *
+   * @param arr The array to be sorted.
+   */
+  public static void mergeSort(long[] arr) {
+    mergeSort(arr, 0, arr.length, new long[arr.length]);
+  }
+
+  /**
+   * Merge sort for long[] using a primitive comparator, so that custom
+   * orders do not need boxing either. Otherwise the same as
+   * mergeSort(long[]).
+   *
+   * You may assume that the passed in array and comparator are both valid
+   * and will not be null.
+   *
+   * @param arr        The array to be sorted.
+   * @param comparator The LongComparator used to compare the data in arr.
+   */
+  public static void mergeSort(long[] arr, LongComparator comparator) {
+    mergeSort(arr, 0, arr.length, new long[arr.length], comparator);
+  }
+
+  private static void mergeSort(long[] arr, int start, int end,
+      long[] buffer) {
+    if (end - start < 2) {
+      return;
+    }
+    int mid = start + (end - start) / 2;
+    mergeSort(arr, start, mid, buffer);
+    mergeSort(arr, mid, end, buffer);
+
+    System.arraycopy(arr, start, buffer, 0, end - start);
+    int leftIndx = 0;
+    int leftEnd = mid - start;
+    int rightIndx = leftEnd;
+    int rightEnd = end - start;
+    int currIndx = start;
+    while (leftIndx < leftEnd && rightIndx < rightEnd) {
+      if (buffer[leftIndx] <= buffer[rightIndx]) {
+        arr[currIndx++] = buffer[leftIndx++];
+      } else {
+        arr[currIndx++] = buffer[rightIndx++];
+      }
+    }
+    while (leftIndx < leftEnd) {
+      arr[currIndx++] = buffer[leftIndx++];
+    }
+    while (rightIndx < rightEnd) {
+      arr[currIndx++] = buffer[rightIndx++];
+    }
+  }
+
+  /**
+   * Merge sorts arr[start, end) under comparator, using buffer (of length at
+   * least end - start) as scratch space.
+   */
+  private static void mergeSort(long[] arr, int start, int end,
+      long[] buffer, LongComparator comparator) {
+    if (end - start < 2) {
+      return;
+    }
+    int mid = start + (end - start) / 2;
+    mergeSort(arr, start, mid, buffer, comparator);
+    mergeSort(arr, mid, end, buffer, comparator);
+
+    System.arraycopy(arr, start, buffer, 0, end - start);
+    int leftIndx = 0;
+    int leftEnd = mid - start;
+    int rightIndx = leftEnd;
+    int rightEnd = end - start;
+    int currIndx = start;
+    while (leftIndx < leftEnd && rightIndx < rightEnd) {
+      if (comparator.compare(buffer[leftIndx], buffer[rightIndx]) <= 0) {
+        arr[currIndx++] = buffer[leftIndx++];
+      } else {
+        arr[currIndx++] = buffer[rightIndx++];
+      }
+    }
+    while (leftIndx < leftEnd) {
+      arr[currIndx++] = buffer[leftIndx++];
+    }
+    while (rightIndx < rightEnd) {
+      arr[currIndx++] = buffer[rightIndx++];
+    }
+  }
+
+  /**
+   * Merge sort for double[], in ascending numeric order, as defined by
+   * Double.compare: -0.0 sorts before 0.0 and NaN sorts last.
+   *
+   * It has the same properties and split rule as mergeSort(T[], Comparator):
+   * out-of-place, stable, not adaptive, O(n log n) in every case, and the
+   * extra element of an odd split goes to the right. Elements are merged
+   * as raw doubles through one buffer allocated up front, so nothing is
+   * boxed.
+   *
+   * You may assume that the passed in array is valid and will not be null.
+   *
+   * @param arr The array to be sorted.
+   */
+  public static void mergeSort(double[] arr) {
+    mergeSort(arr, 0, arr.length, new double[arr.length]);
+  }
+
+  /**
+   * Merge sort for double[] using a primitive comparator, so that custom
+   * orders do not need boxing either. Otherwise the same as
+   * mergeSort(double[]).
+   *
+   * You may assume that the passed in array and comparator are both valid
+   * and will not be null.
+   *
+   * @param arr        The array to be sorted.
+   * @param comparator The DoubleComparator used to compare the data in arr.
+   */
+  public static void mergeSort(double[] arr, DoubleComparator comparator) {
+    mergeSort(arr, 0, arr.length, new double[arr.length], comparator);
+  }
+
+  private static void mergeSort(double[] arr, int start, int end,
+      double[] buffer) {
+    if (end - start < 2) {
+      return;
+    }
+    int mid = start + (end - start) / 2;
+    mergeSort(arr, start, mid, buffer);
+    mergeSort(arr, mid, end, buffer);
+
+    System.arraycopy(arr, start, buffer, 0, end - start);
+    int leftIndx = 0;
+    int leftEnd = mid - start;
+    int rightIndx = leftEnd;
+    int rightEnd = end - start;
+    int currIndx = start;
+    while (leftIndx < leftEnd && rightIndx < rightEnd) {
+      if (Double.compare(buffer[leftIndx], buffer[rightIndx]) <= 0) {
+        arr[currIndx++] = buffer[leftIndx++];
+      } else {
+        arr[currIndx++] = buffer[rightIndx++];
+      }
+    }
+    while (leftIndx < leftEnd) {
+      arr[currIndx++] = buffer[leftIndx++];
+    }
+    while (rightIndx < rightEnd) {
+      arr[currIndx++] = buffer[rightIndx++];
+    }
+  }
+
+  /**
+   * Merge sorts arr[start, end) under comparator, using buffer (of length at
+   * least end - start) as scratch space.
+   */
+  private static void mergeSort(double[] arr, int start, int end,
+      double[] buffer, DoubleComparator comparator) {
+    if (end - start < 2) {
+      return;
+    }
+    int mid = start + (end - start) / 2;
+    mergeSort(arr, start, mid, buffer, comparator);
+    mergeSort(arr, mid, end, buffer, comparator);
+
+    System.arraycopy(arr, start, buffer, 0, end - start);
+    int leftIndx = 0;
+    int leftEnd = mid - start;
+    int rightIndx = leftEnd;
+    int rightEnd = end - start;
+    int currIndx = start;
+    while (leftIndx < leftEnd && rightIndx < rightEnd) {
+      if (comparator.compare(buffer[leftIndx], buffer[rightIndx]) <= 0) {
+        arr[currIndx++] = buffer[leftIndx++];
+      } else {
+        arr[currIndx++] = buffer[rightIndx++];
+      }
+    }
+    while (leftIndx < leftEnd) {
+      arr[currIndx++] = buffer[leftIndx++];
+    }
+    while (rightIndx < rightEnd) {
+      arr[currIndx++] = buffer[rightIndx++];
+    }
+  }
+
+  /**
+   * Partial sort: moves the k smallest elements to the front of the array,
+   * in sorted order, without sorting the rest.
+   *
+   * It should be:
+   * out-of-place: O(n) extra space, made up of an int[n] of indices, an
+   * int[k] merge buffer, a copy of arr and a boolean[n] used to write the
+   * result back into arr
+   * stable, both for the sorted prefix and for the rest of the array
+   *
+   * Have an expected running time of: O(n + k log k)
+   * And a worst case running time of: O(n log n)
+   *
+   * The elements are selected with introselect: quickselect with a
+   * median-of-three pivot, which falls back to sorting the remaining range
+   * if it recurses too deep. Only the k selected elements are then sorted.
+   * Selection works on an array of indices and breaks ties by index, so
+   * equal elements keep their original order. The elements after the prefix
+   * also keep their original relative order.
+   *
+   * To get the k largest elements, pass comparator.reversed().
+   *
+   * You may assume that the passed in array and comparator are both valid
+   * and will not be null.
+   *
+   * @param <T>        Data type to sort.
+   * @param arr        The array to be partially sorted.
+   * @param k          The number of smallest elements to sort to the front.
+   * @param comparator The Comparator used to compare the data in arr.
+   * @throws IllegalArgumentException If k is negative or larger than the
+   *                                  length of arr.
+   */
+  public static <T> void partialSort(T[] arr, int k,
+      Comparator<T> comparator) {
+    int length = arr.length;
+    if (k < 0 || k > length) {
+      throw new IllegalArgumentException(
+          "k must be between 0 and the length of the array.");
+    }
+    if (k == 0) {
+      return;
+    }
+
+    int[] indices = new int[length];
+    for (int i = 0; i < length; i++) {
+      indices[i] = i;
+    }
+    IntComparator order = (a, b) -> {
+      int result = comparator.compare(arr[a], arr[b]);
+      return result != 0 ? result : Integer.compare(a, b);
+    };
+
+    if (k < length) {
+      int depthLimit = 2 * (32 - Integer.numberOfLeadingZeros(length));
+      introselect(indices, 0, length, k, depthLimit, order);
+    }
+    mergeSort(indices, 0, k, new int[k], order);
+
+    // write the sorted prefix, then everything else in its original order
+    T[] copy = Arrays.copyOf(arr, length);
+    boolean[] selected = new boolean[length];
+    for (int i = 0; i < k; i++) {
+      arr[i] = copy[indices[i]];
+      selected[indices[i]] = true;
+    }
+    int next = k;
+    for (int i = 0; i < length; i++) {
+      if (!selected[i]) {
+        arr[next] = copy[i];
+        next++;
+      }
+    }
+  }
+
+  /**
+   * Returns the k smallest elements of a stream of data, in sorted order,
+   * while holding at most k elements in memory.
+   *
+   * It should be:
+   * stable
+   *
+   * Have a worst case running time of: O(n log k)
+   *
+   * A max-heap of the k smallest elements seen so far is kept, and each new
+   * element replaces the top only if it is strictly smaller, so among equal
+   * elements the earliest ones are kept.
+   *
+   * To get the k largest elements, pass comparator.reversed().
+   *
+   * You may assume that the passed in data and comparator are both valid
+   * and will not be null.
+   *
+   * @param <T>        Data type to select from.
+   * @param data       The data to select from.
+   * @param k          The number of elements to return.
+   * @param comparator The Comparator used to compare the data.
+   * @return List of the k smallest elements, or of all the elements if
+   *         there are fewer than k, in sorted order.
+   * @throws IllegalArgumentException If k is negative.
+   */
+  public static <T> List<T> topK(Iterable<T> data, int k,
+      Comparator<T> comparator) {
+    if (k < 0) {
+      throw new IllegalArgumentException("k cannot be negative.");
+    }
+    if (k == 0) {
+      return new ArrayList<>();
+    }
+
+    // the heap top is the largest kept element, the latest one on ties
+    Comparator<SequencedItem<T>> order = (a, b) -> {
+      int result = comparator.compare(b.item, a.item);
+      return result != 0 ? result : Long.compare(b.sequence, a.sequence);
+    };
+    PriorityQueue<SequencedItem<T>> heap =
+        new PriorityQueue<>(Math.min(k, 1 << 16), order);
+
+    long sequence = 0;
+    for (T item : data) {
+      if (heap.size() < k) {
+        heap.add(new SequencedItem<>(item, sequence));
+      } else if (comparator.compare(item, heap.peek().item) < 0) {
+        heap.poll();
+        heap.add(new SequencedItem<>(item, sequence));
+      }
+      sequence++;
+    }
+
+    List<T> result = new ArrayList<>(heap.size());
+    while (!heap.isEmpty()) {
+      result.add(heap.poll().item);
+    }
+    Collections.reverse(result);
+    return result;
+  }
+
+  /**
+   * Rearranges indices[start, end) so that the first k - start positions
+   * hold the smallest indices under order, in no particular order.
+   */
+  private static void introselect(int[] indices, int start, int end, int k,
+      int depthLimit, IntComparator order) {
+    while (end - start > 1) {
+      if (depthLimit == 0) {
+        mergeSort(indices, start, end, new int[end - start], order);
+        return;
+      }
+      depthLimit--;
+
+      int pivot = partition(indices, start, end,
+          medianOfThree(indices, start, end, order), order);
+      if (pivot == k || pivot == k - 1) {
+        return;
+      } else if (pivot < k) {
+        start = pivot + 1;
+      } else {
+        end = pivot;
+      }
+    }
+  }
+
+  private static int medianOfThree(int[] indices, int start, int end,
+      IntComparator order) {
+    int a = start;
+    int b = start + (end - start) / 2;
+    int c = end - 1;
+    if (order.compare(indices[a], indices[b]) > 0) {
+      int temp = a;
+      a = b;
+      b = temp;
+    }
+    if (order.compare(indices[b], indices[c]) > 0) {
+      b = c;
+      if (order.compare(indices[a], indices[b]) > 0) {
+        b = a;
+      }
+    }
+    return b;
+  }
+
+  /**
+   * Lomuto partition around indices[pivot]. Returns the final position of
+   * the pivot; everything before it is smaller and everything after larger.
+   * All keys are distinct since ties are broken by index.
+   */
+  private static int partition(int[] indices, int start, int end, int pivot,
+      IntComparator order) {
+    swap(indices, pivot, end - 1);
+    int pivotIndex = indices[end - 1];
+    int store = start;
+    for (int i = start; i < end - 1; i++) {
+      if (order.compare(indices[i], pivotIndex) < 0) {
+        swap(indices, i, store);
+        store++;
+      }
+    }
+    swap(indices, store, end - 1);
+    return store;
+  }
+
+  private static void swap(int[] arr, int i, int j) {
+    int temp = arr[i];
+    arr[i] = arr[j];
+    arr[j] = temp;
+  }
+
+  /**
+   * An element of a stream tagged with its position, so that the bounded
+   * heap in topK can keep the earliest of equal elements.
+   */
+  private static class SequencedItem<T> {
+    private final T item;
+    private final long sequence;
+
+    private SequencedItem(T item, long sequence) {
+      this.item = item;
+      this.sequence = sequence;
+    }
+  }
+
+  /**
+   * Merges runs that are each already sorted into one sorted array.
+   *
+   * It should be:
+   * out-of-place
+   * stable
+   *
+   * Have a worst case running time of: O(n log k)
+   *
+   * where k is the number of runs. The next element is chosen by a loser
+   * tree over the heads of the runs: every internal node remembers the run
+   * that lost the match played there, so that after an element is taken
+   * only the matches on the path from its run to the root are replayed,
+   * which is one comparison per level. Equal elements are taken from the
+   * earlier run first, and in order within a run.
+   *
+   * You may assume that the passed in runs and comparator are both valid,
+   * that every run is sorted by the comparator, and that nothing will be
+   * null.
+   *
+   * @param <T>        Data type to merge.
+   * @param runs       The sorted runs to merge.
+   * @param comparator The Comparator the runs are sorted by.
+   * @return New array holding every element of the runs in sorted order,
+   *         of the same runtime type as the first run.
+   * @throws IllegalArgumentException If there are no runs.
+   */
+  public static <T> T[] mergeSorted(List<T[]> runs,
+      Comparator<T> comparator) {
+    T[] merged = allocateMerged(runs);
+    if (runs.size() == 1) {
+      System.arraycopy(runs.get(0), 0, merged, 0, merged.length);
+      return merged;
+    }
+
+    int[] positions = new int[runs.size()];
+    LoserTree<T> tree = new LoserTree<T>(runs.size(), comparator) {
+      @Override
+      boolean load(int run) {
+        T[] source = runs.get(run);
+        if (positions[run] == source.length) {
+          return false;
+        }
+        heads[run] = source[positions[run]++];
+        return true;
+      }
+    }.start();
+    for (int i = 0; i < merged.length; i++) {
+      merged[i] = tree.take();
+    }
+    return merged;
+  }
+
+  /**
+   * Lazily merges iterators that each return their elements in sorted
+   * order. Only the current head of every run is held in memory, so runs
+   * can be streamed from files or sockets far larger than the heap.
+   *
+   * It should be:
+   * stable
+   *
+   * Have a worst case running time of: O(n log k)
+   *
+   * It uses the same loser tree as mergeSorted, and each run is advanced
+   * only when its head has been returned.
+   *
+   * You may assume that the passed in runs and comparator are both valid,
+   * that every run is sorted by the comparator, and that nothing will be
+   * null.
+   *
+   * @param <T>        Data type to merge.
+   * @param runs       The sorted runs to merge.
+   * @param comparator The Comparator the runs are sorted by.
+   * @return Iterator over every element of the runs in sorted order.
+   */
+  public static <T> Iterator<T> mergeSortedIterators(
+      List<? extends Iterator<? extends T>> runs, Comparator<T> comparator) {
+    if (runs.isEmpty()) {
+      return Collections.emptyIterator();
+    }
+    LoserTree<T> tree = new LoserTree<T>(runs.size(), comparator) {
+      @Override
+      boolean load(int run) {
+        Iterator<? extends T> source = runs.get(run);
+        if (!source.hasNext()) {
+          return false;
+        }
+        heads[run] = source.next();
+        return true;
+      }
+    }.start();
+    return new Iterator<T>() {
+      @Override
+      public boolean hasNext() {
+        return tree.hasNext();
+      }
+
+      @Override
+      public T next() {
+        if (!tree.hasNext()) {
+          throw new NoSuchElementException();
+        }
+        return tree.take();
+      }
+    };
+  }
+
+  /**
+   * Merges sorted runs into one sorted array like mergeSorted, using every
+   * core of the common ForkJoinPool for large inputs.
+   *
+   * It should be:
+   * out-of-place
+   * stable
+   *
+   * Have a worst case running time of: O(n log k)
+   *
+   * The runs are merged pairwise as a balanced tree, with the two halves of
+   * the run list merged in parallel and then merged with each other. Every
+   * two-way merge is itself split: the middle element of the longer side is
+   * binary searched in the other side, which cuts the merge into two
+   * independent halves. Merges of up to PARALLEL_MERGE_CUTOFF elements run
+   * sequentially. The merge tree alternates between the result and one
+   * buffer of the same size, so each level moves every element once.
+   *
+   * You may assume that the passed in runs and comparator are both valid,
+   * that every run is sorted by the comparator, that nothing will be null,
+   * and that the comparator is safe to call from several threads.
+   *
+   * @param <T>        Data type to merge.
+   * @param runs       The sorted runs to merge.
+   * @param comparator The Comparator the runs are sorted by.
+   * @return New array holding every element of the runs in sorted order,
+   *         of the same runtime type as the first run.
+   * @throws IllegalArgumentException If there are no runs.
+   */
+  public static <T> T[] parallelMergeSorted(List<T[]> runs,
+      Comparator<T> comparator) {
+    long total = 0;
+    for (T[] run : runs) {
+      total += run.length;
+    }
+    if (total <= PARALLEL_MERGE_CUTOFF || runs.size() == 1) {
+      return mergeSorted(runs, comparator);
+    }
+
+    T[] merged = allocateMerged(runs);
+    int[] offsets = new int[runs.size() + 1];
+    for (int i = 0; i < runs.size(); i++) {
+      offsets[i + 1] = offsets[i] + runs.get(i).length;
+    }
+    T[] buffer = Arrays.copyOf(merged, merged.length);
+    ForkJoinPool.commonPool().invoke(new RecursiveAction() {
+      @Override
+      protected void compute() {
+        List<RecursiveAction> copies = new ArrayList<>(runs.size());
+        for (int i = 0; i < runs.size(); i++) {
+          int run = i;
+          copies.add(new RecursiveAction() {
+            @Override
+            protected void compute() {
+              T[] source = runs.get(run);
+              int offset = offsets[run];
+              System.arraycopy(source, 0, merged, offset, source.length);
+              System.arraycopy(source, 0, buffer, offset, source.length);
+            }
+          });
+        }
+        invokeAll(copies);
+      }
+    });
+    ForkJoinPool.commonPool().invoke(new MergeRuns<>(merged, buffer, offsets,
+        0, runs.size(), comparator));
+    return merged;
+  }
+
+  /**
+   * The number of elements below which parallelMergeSorted merges without
+   * splitting the work any further.
+   */
+  private static final int PARALLEL_MERGE_CUTOFF = 1 << 13;
+
+  /**
+   * Allocates the result of merging runs, which takes its runtime type
+   * from the first run.
+   */
+  private static <T> T[] allocateMerged(List<T[]> runs) {
+    if (runs.isEmpty()) {
+      throw new IllegalArgumentException("There must be at least one run.");
+    }
+    long total = 0;
+    for (T[] run : runs) {
+      total += run.length;
+    }
+    if (total > Integer.MAX_VALUE - 8) {
+      throw new IllegalArgumentException(
+          "The runs are too large to merge into one array.");
+    }
+    return Arrays.copyOf(runs.get(0), (int) total);
+  }
+
+  /**
+   * A loser tree over k runs. Leaf i is run i, at position k + i of an
+   * implicit binary tree, and losers[node] is the run that lost the match
+   * at that internal node. losers[0] holds the overall winner: the run with
+   * the smallest head, the lowest numbered one on ties. Exhausted runs lose
+   * every match.
+   */
+  private abstract static class LoserTree<T> {
+    final Object[] heads;
+    private final boolean[] exhausted;
+    private final int[] losers;
+    private final Comparator<T> comparator;
+
+    LoserTree(int k, Comparator<T> comparator) {
+      this.comparator = comparator;
+      heads = new Object[k];
+      exhausted = new boolean[k];
+      losers = new int[k];
+    }
+
+    /**
+     * Loads the first element of every run and plays the initial matches.
+     * It must be called once, before any other method.
+     */
+    LoserTree<T> start() {
+      int k = heads.length;
+      for (int run = 0; run < k; run++) {
+        exhausted[run] = !load(run);
+      }
+
+      // play every match bottom up, keeping the winners below each node
+      int[] winners = new int[2 * k];
+      for (int run = 0; run < k; run++) {
+        winners[k + run] = run;
+      }
+      for (int node = k - 1; node >= 1; node--) {
+        int left = winners[2 * node];
+        int right = winners[2 * node + 1];
+        if (beats(left, right)) {
+          winners[node] = left;
+          losers[node] = right;
+        } else {
+          winners[node] = right;
+          losers[node] = left;
+        }
+      }
+      losers[0] = k == 1 ? 0 : winners[1];
+      return this;
+    }
+
+    /**
+     * Loads the next element of a run into heads.
+     *
+     * @param run The run to advance.
+     * @return False if the run has no more elements.
+     */
+    abstract boolean load(int run);
+
+    boolean hasNext() {
+      return !exhausted[losers[0]];
+    }
+
+    /**
+     * Removes and returns the smallest head, then advances its run and
+     * replays the matches on the way from its leaf to the root.
+     */
+    @SuppressWarnings("unchecked")
+    T take() {
+      int winner = losers[0];
+      T item = (T) heads[winner];
+      exhausted[winner] = !load(winner);
+      if (exhausted[winner]) {
+        heads[winner] = null;
+      }
+      int leaf = winner + heads.length;
+      for (int node = leaf >>> 1; node >= 1; node >>>= 1) {
+        if (beats(losers[node], winner)) {
+          int loser = winner;
+          winner = losers[node];
+          losers[node] = loser;
+        }
+      }
+      losers[0] = winner;
+      return item;
+    }
+
+    @SuppressWarnings("unchecked")
+    private boolean beats(int a, int b) {
+      if (exhausted[a] || exhausted[b]) {
+        return !exhausted[a] || (exhausted[b] && a < b);
+      }
+      int result = comparator.compare((T) heads[a], (T) heads[b]);
+      return result < 0 || (result == 0 && a < b);
+    }
+  }
+
+  /**
+   * Merges runs[start, end) into into[offsets[start], offsets[end]), by
+   * first merging each half of the runs into other in parallel. Both arrays
+   * start out holding every run at its offset.
+   */
+  private static class MergeRuns<T> extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final T[] into;
+    private final T[] other;
+    private final int[] offsets;
+    private final int start;
+    private final int end;
+    private final Comparator<T> comparator;
+
+    private MergeRuns(T[] into, T[] other, int[] offsets, int start, int end,
+        Comparator<T> comparator) {
+      this.into = into;
+      this.other = other;
+      this.offsets = offsets;
+      this.start = start;
+      this.end = end;
+      this.comparator = comparator;
+    }
+
+    @Override
+    protected void compute() {
+      if (end - start < 2) {
+        return;
+      }
+      int middle = (start + end) >>> 1;
+      invokeAll(
+          new MergeRuns<>(other, into, offsets, start, middle, comparator),
+          new MergeRuns<>(other, into, offsets, middle, end, comparator));
+      new MergeHalves<>(other, offsets[start], offsets[middle],
+          offsets[middle], offsets[end], into, offsets[start],
+          comparator).compute();
+    }
+  }
+
+  /**
+   * Stably merges source[leftStart, leftEnd) and source[rightStart,
+   * rightEnd) into target from targetStart, splitting large merges into two
+   * independent ones around the middle element of the longer side.
+   */
+  private static class MergeHalves<T> extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final T[] source;
+    private final int leftStart;
+    private final int leftEnd;
+    private final int rightStart;
+    private final int rightEnd;
+    private final T[] target;
+    private final int targetStart;
+    private final Comparator<T> comparator;
+
+    private MergeHalves(T[] source, int leftStart, int leftEnd,
+        int rightStart, int rightEnd, T[] target, int targetStart,
+        Comparator<T> comparator) {
+      this.source = source;
+      this.leftStart = leftStart;
+      this.leftEnd = leftEnd;
+      this.rightStart = rightStart;
+      this.rightEnd = rightEnd;
+      this.target = target;
+      this.targetStart = targetStart;
+      this.comparator = comparator;
+    }
+
+    @Override
+    protected void compute() {
+      int leftLength = leftEnd - leftStart;
+      int rightLength = rightEnd - rightStart;
+      if (leftLength + rightLength <= PARALLEL_MERGE_CUTOFF) {
+        merge();
+        return;
+      }
+
+      // elements equal to the pivot go after it if they are on the right
+      int leftSplit;
+      int rightSplit;
+      int pivotTarget;
+      if (leftLength >= rightLength) {
+        leftSplit = (leftStart + leftEnd) >>> 1;
+        rightSplit = search(rightStart, rightEnd, source[leftSplit], false);
+        pivotTarget = targetStart + (leftSplit - leftStart)
+            + (rightSplit - rightStart);
+        target[pivotTarget] = source[leftSplit];
+        invokeAll(
+            new MergeHalves<>(source, leftStart, leftSplit, rightStart,
+                rightSplit, target, targetStart, comparator),
+            new MergeHalves<>(source, leftSplit + 1, leftEnd, rightSplit,
+                rightEnd, target, pivotTarget + 1, comparator));
+      } else {
+        rightSplit = (rightStart + rightEnd) >>> 1;
+        leftSplit = search(leftStart, leftEnd, source[rightSplit], true);
+        pivotTarget = targetStart + (leftSplit - leftStart)
+            + (rightSplit - rightStart);
+        target[pivotTarget] = source[rightSplit];
+        invokeAll(
+            new MergeHalves<>(source, leftStart, leftSplit, rightStart,
+                rightSplit, target, targetStart, comparator),
+            new MergeHalves<>(source, leftSplit, leftEnd, rightSplit + 1,
+                rightEnd, target, pivotTarget + 1, comparator));
+      }
+    }
+
+    /**
+     * Finds the first index in [start, end) whose element is greater than
+     * the key, or greater than or equal to it if orEqual is false.
+     */
+    private int search(int start, int end, T key, boolean orEqual) {
+      while (start < end) {
+        int middle = (start + end) >>> 1;
+        int result = comparator.compare(source[middle], key);
+        if (result < 0 || (orEqual && result == 0)) {
+          start = middle + 1;
+        } else {
+          end = middle;
+        }
+      }
+      return start;
+    }
+
+    private void merge() {
+      int left = leftStart;
+      int right = rightStart;
+      int next = targetStart;
+      while (left < leftEnd && right < rightEnd) {
+        if (comparator.compare(source[left], source[right]) <= 0) {
+          target[next++] = source[left++];
+        } else {
+          target[next++] = source[right++];
+        }
+      }
+      System.arraycopy(source, left, target, next, leftEnd - left);
+      next += leftEnd - left;
+      System.arraycopy(source, right, target, next, rightEnd - right);
+    }
+  }
+
   /**
    * Implement LSD (least significant digit) radix sort.
    *
@@ -155,4 +1109,290 @@ public class Sorting {
       k++;
     }
   }
-}
\ No newline at end of file
+
+  /**
+   * Subarrays smaller than this are handed from MSD radix sort to
+   * multikey quicksort, since a 257-entry count pass costs too much there.
+   */
+  private static final int QUICKSORT_CUTOFF = 256;
+
+  /**
+   * Subarrays smaller than this are finished with insertion sort.
+   */
+  private static final int INSERTION_CUTOFF = 12;
+
+  /**
+   * Implement a string-specialized sort: MSD (most significant digit) radix
+   * sort, switching to three-way multikey quicksort for medium subarrays and
+   * to insertion sort for small ones.
+   *
+   * It should be:
+   * in-place, except for one auxiliary array used by the radix passes
+   * not stable in general (equal strings are indistinguishable for String)
+   *
+   * Have a worst case running time of: O(n * w) character inspections,
+   * where w is the length of the longest string
+   *
+   * Strings are ordered like String.compareTo: by char value, with a prefix
+   * before any longer string. Every char is read as two 8-bit digits, high
+   * byte first, so the radix passes only need 257 buckets (one for "end of
+   * string"). Characters are read in place with charAt, so no substrings are
+   * ever created, and each level only looks at the characters after the
+   * prefix its subarray is already known to share. That is what makes this
+   * much faster than mergeSort with a String comparator on data with long
+   * common prefixes, such as URLs or hierarchical keys.
+   *
+   * You may assume that the passed in array is valid and will not be null,
+   * and that it contains no null elements.
+   *
+   * @param <T> Data type to sort.
+   * @param arr The array to be sorted.
+   */
+  public static <T extends CharSequence> void msdStringSort(T[] arr) {
+    if (arr.length < 2) {
+      return;
+    }
+    msdStringSort(arr, Arrays.copyOf(arr, arr.length));
+  }
+
+  /**
+   * Sorts arr with MSD radix passes over an explicit stack of subarrays,
+   * so deeply nested shared prefixes cannot overflow the call stack. Each
+   * stack entry is a subarray [start, end) whose strings all share their
+   * first digit / 2 chars, and also the high byte of the next char if
+   * digit is odd. One count array serves every pass, since a subarray is
+   * fully distributed before its buckets are pushed.
+   */
+  private static <T extends CharSequence> void msdStringSort(T[] arr,
+      T[] aux) {
+    int[] count = new int[258];
+    int[] stack = new int[3 * 64];
+    int top = 0;
+    stack[top++] = 0;
+    stack[top++] = arr.length;
+    stack[top++] = 0;
+
+    while (top > 0) {
+      int digit = stack[--top];
+      int end = stack[--top];
+      int start = stack[--top];
+      if (end - start < QUICKSORT_CUTOFF) {
+        multikeyQuicksort(arr, start, end, digit / 2);
+        continue;
+      }
+
+      boolean shared = true;
+      while (shared) {
+        if ((digit & 1) == 0) {
+          // skip whole chars that every string shares
+          digit += 2 * commonPrefix(arr, start, end, digit / 2);
+        }
+        Arrays.fill(count, 0);
+        for (int i = start; i < end; i++) {
+          count[byteAt(arr[i], digit) + 2]++;
+        }
+        // if every string shares this digit too, nothing needs to move
+        shared = count[1] == 0 && sameDigit(count, end - start);
+        if (shared) {
+          digit++;
+        }
+      }
+
+      for (int r = 0; r < 257; r++) {
+        count[r + 1] += count[r];
+      }
+      for (int i = start; i < end; i++) {
+        aux[count[byteAt(arr[i], digit) + 1]++] = arr[i];
+      }
+      System.arraycopy(aux, 0, arr, start, end - start);
+
+      // strings that ended are in [0, count[0]), and the strings whose
+      // digit is r are in [count[r], count[r + 1])
+      for (int r = 0; r < 256; r++) {
+        if (count[r + 1] - count[r] > 1) {
+          if (top + 3 > stack.length) {
+            stack = Arrays.copyOf(stack, stack.length * 2);
+          }
+          stack[top++] = start + count[r];
+          stack[top++] = start + count[r + 1];
+          stack[top++] = digit + 1;
+        }
+      }
+    }
+  }
+
+  /**
+   * Three-way radix quicksort on arr[start, end), whose strings all share
+   * their first depth chars. The middle partition shares one more char and
+   * is handled by looping rather than recursing, so long shared prefixes do
+   * not grow the call stack.
+   */
+  private static <T extends CharSequence> void multikeyQuicksort(T[] arr,
+      int start, int end, int depth) {
+    while (end - start >= INSERTION_CUTOFF) {
+      swap(arr, start, start + (end - start) / 2);
+      int pivot = charAt(arr[start], depth);
+      int lt = start;
+      int gt = end - 1;
+      int i = start + 1;
+      while (i <= gt) {
+        int c = charAt(arr[i], depth);
+        if (c < pivot) {
+          swap(arr, lt++, i++);
+        } else if (c > pivot) {
+          swap(arr, i, gt--);
+        } else {
+          i++;
+        }
+      }
+
+      multikeyQuicksort(arr, start, lt, depth);
+      multikeyQuicksort(arr, gt + 1, end, depth);
+      if (pivot < 0) {
+        // the middle partition holds strings that all ended here
+        return;
+      }
+      start = lt;
+      end = gt + 1;
+      depth++;
+    }
+    insertionSort(arr, start, end, depth);
+  }
+
+  private static <T extends CharSequence> void insertionSort(T[] arr,
+      int start, int end, int depth) {
+    for (int i = start + 1; i < end; i++) {
+      T item = arr[i];
+      int j = i;
+      while (j > start && lessFrom(item, arr[j - 1], depth)) {
+        arr[j] = arr[j - 1];
+        j--;
+      }
+      arr[j] = item;
+    }
+  }
+
+  /**
+   * Compares two strings that share their first depth chars.
+   */
+  private static boolean lessFrom(CharSequence a, CharSequence b,
+      int depth) {
+    int length = Math.min(a.length(), b.length());
+    for (int i = depth; i < length; i++) {
+      char x = a.charAt(i);
+      char y = b.charAt(i);
+      if (x != y) {
+        return x < y;
+      }
+    }
+    return a.length() < b.length();
+  }
+
+  /**
+   * Checks whether all size strings fell into one digit bucket, using the
+   * counts before they are summed, where count[r + 2] is the size of the
+   * bucket for digit r.
+   */
+  private static boolean sameDigit(int[] count, int size) {
+    for (int r = 0; r < 256; r++) {
+      if (count[r + 2] == size) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Finds how many chars from depth on are shared by every string in
+   * arr[start, end), by shrinking the prefix of the first string.
+   */
+  private static <T extends CharSequence> int commonPrefix(T[] arr,
+      int start, int end, int depth) {
+    CharSequence first = arr[start];
+    int prefix = first.length() - depth;
+    for (int i = start + 1; i < end && prefix > 0; i++) {
+      CharSequence other = arr[i];
+      int limit = Math.min(prefix, other.length() - depth);
+      int shared = 0;
+      while (shared < limit
+          && first.charAt(depth + shared) == other.charAt(depth + shared)) {
+        shared++;
+      }
+      prefix = shared;
+    }
+    return Math.max(prefix, 0);
+  }
+
+  private static int charAt(CharSequence s, int index) {
+    return index < s.length() ? s.charAt(index) : -1;
+  }
+
+  private static int byteAt(CharSequence s, int digit) {
+    int index = digit >> 1;
+    if (index >= s.length()) {
+      return -1;
+    }
+    char c = s.charAt(index);
+    return (digit & 1) == 0 ? c >>> 8 : c & 0xFF;
+  }
+
+  private static <T> void swap(T[] arr, int i, int j) {
+    T temp = arr[i];
+    arr[i] = arr[j];
+    arr[j] = temp;
+  }
+}
+
+/**
+ * Comparator over primitive ints, so that int[] data can be sorted in a
+ * custom order without boxing.
+ */
+@FunctionalInterface
+public interface IntComparator {
+
+  /**
+   * Compares two ints.
+   *
+   * @param a The first value.
+   * @param b The second value.
+   * @return Negative if a comes before b, positive if a comes after b, and 0
+   *         if they are equal.
+   */
+  int compare(int a, int b);
+}
+
+/**
+ * Comparator over primitive longs, so that long[] data can be sorted in a
+ * custom order without boxing.
+ */
+@FunctionalInterface
+public interface LongComparator {
+
+  /**
+   * Compares two longs.
+   *
+   * @param a The first value.
+   * @param b The second value.
+   * @return Negative if a comes before b, positive if a comes after b, and 0
+   *         if they are equal.
+   */
+  int compare(long a, long b);
+}
+
+/**
+ * Comparator over primitive doubles, so that double[] data can be sorted in
+ * a custom order without boxing.
+ */
+@FunctionalInterface
+public interface DoubleComparator {
+
+  /**
+   * Compares two doubles.
+   *
+   * @param a The first value.
+   * @param b The second value.
+   * @return Negative if a comes before b, positive if a comes after b, and 0
+   *         if they are equal.
+   */
+  int compare(double a, double b);
+}
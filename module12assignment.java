@@ -1,5 +1,16 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.Comparator;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -60,8 +71,6 @@ public class PatternMatching {
     }
     return foundIndices;
   }
-}
-
 
     /**
      * Builds the last occurrence table that will be used to run the Boyer Moore algorithm.
@@ -98,8 +107,973 @@ public class PatternMatching {
         return lastTable;
     }
 
+    /**
+     * Approximate search that allows up to k mismatched characters
+     * (Hamming distance), using the bit-parallel Shift-And algorithm.
+     *
+     * Pattern position i is bit i of a bitvector, one long per 64 pattern
+     * characters. For every error count d from 0 to k, a bitvector marks
+     * the pattern prefixes that currently end at the text position with at
+     * most d mismatches, and all of them are advanced with a shift, an AND
+     * and an OR per text character. Patterns of up to 64 characters take a
+     * single long per error count.
+     *
+     * Each match is reported once, with the smallest number of mismatches.
+     *
+     * You may assume that the passed in pattern and text will not be null.
+     *
+     * @param pattern The pattern you are searching for in a body of text.
+     * @param text    The body of text where you search for the pattern.
+     * @param k       The maximum number of mismatches allowed.
+     * @return List of matches, in order of their end offset.
+     * @throws IllegalArgumentException If k is negative.
+     */
+    public static List<ApproximateMatch> searchWithMismatches(CharSequence pattern, CharSequence text, int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k cannot be negative.");
+        }
+        List<ApproximateMatch> matches = new ArrayList<>();
+        int patternLength = pattern.length();
+        if (patternLength == 0 || text.length() < patternLength) {
+            return matches;
+        }
+        k = Math.min(k, patternLength);
+
+        PatternMasks masks = new PatternMasks(pattern);
+        int words = masks.words;
+        int lastWord = words - 1;
+        long lastBit = 1L << ((patternLength - 1) & 63);
+        long[][] states = new long[k + 1][words];
+        long[] previous = new long[words];
+        long[] shifted = new long[words];
+
+        for (int textIndex = 0; textIndex < text.length(); textIndex++) {
+            long[] mask = masks.get(text.charAt(textIndex));
+
+            // states[d] becomes (shift(states[d]) & mask) | shift(old states[d - 1])
+            for (int d = 0; d <= k; d++) {
+                shiftIn(states[d], shifted);
+                for (int w = 0; w < words; w++) {
+                    long next = shifted[w] & mask[w];
+                    if (d > 0) {
+                        next |= previous[w];
+                    }
+                    shifted[w] = next;
+                }
+                shiftIn(states[d], previous);
+                System.arraycopy(shifted, 0, states[d], 0, words);
+            }
+
+            for (int d = 0; d <= k; d++) {
+                if ((states[d][lastWord] & lastBit) != 0) {
+                    matches.add(new ApproximateMatch(textIndex - patternLength + 1, textIndex + 1, d));
+                    break;
+                }
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Approximate search that allows up to k insertions, deletions and
+     * substitutions (edit distance), using Myers' bit-vector algorithm.
+     *
+     * The column of the edit distance table for the current text position is
+     * stored as vertical +1/-1 delta bitvectors, one long per 64 pattern
+     * characters, and is advanced with a constant number of word operations
+     * per text character. Longer patterns chain the blocks, passing each
+     * block's horizontal delta on to the next block. The score of the last
+     * pattern row is kept incrementally, so every end offset with edit
+     * distance at most k is found without filling in the table.
+     *
+     * A match is reported for every such end offset. Its start offset is
+     * then found by a small dynamic program that runs backwards from the end
+     * over at most pattern length + k characters, and is the latest start
+     * that achieves the distance.
+     *
+     * You may assume that the passed in pattern and text will not be null.
+     *
+     * @param pattern The pattern you are searching for in a body of text.
+     * @param text    The body of text where you search for the pattern.
+     * @param k       The maximum edit distance allowed.
+     * @return List of matches, in order of their end offset.
+     * @throws IllegalArgumentException If k is negative.
+     */
+    public static List<ApproximateMatch> searchWithEdits(CharSequence pattern, CharSequence text, int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k cannot be negative.");
+        }
+        List<ApproximateMatch> matches = new ArrayList<>();
+        int patternLength = pattern.length();
+        if (patternLength == 0) {
+            return matches;
+        }
+
+        PatternMasks masks = new PatternMasks(pattern);
+        int words = masks.words;
+        long lastBit = 1L << ((patternLength - 1) & 63);
+        long[] plus = new long[words];
+        long[] minus = new long[words];
+        Arrays.fill(plus, -1L);
+        int score = patternLength;
+
+        for (int textIndex = 0; textIndex < text.length(); textIndex++) {
+            long[] mask = masks.get(text.charAt(textIndex));
+
+            // the top row of the table is all zeros, so no delta comes in
+            int carry = 0;
+            for (int w = 0; w < words; w++) {
+                long highBit = w == words - 1 ? lastBit : 1L << 63;
+                long pv = plus[w];
+                long mv = minus[w];
+                long eq = mask[w];
+                long carryNegative = carry < 0 ? 1L : 0L;
+
+                long xv = eq | mv;
+                eq |= carryNegative;
+                long xh = (((eq & pv) + pv) ^ pv) | eq;
+                long ph = mv | ~(xh | pv);
+                long mh = pv & xh;
+
+                int carryOut = 0;
+                if ((ph & highBit) != 0) {
+                    carryOut = 1;
+                } else if ((mh & highBit) != 0) {
+                    carryOut = -1;
+                }
+
+                ph <<= 1;
+                mh = (mh << 1) | carryNegative;
+                if (carry > 0) {
+                    ph |= 1L;
+                }
+                plus[w] = mh | ~(xv | ph);
+                minus[w] = ph & xv;
+                carry = carryOut;
+            }
+            score += carry;
+
+            if (score <= k) {
+                int start = findStart(pattern, text, textIndex + 1, score);
+                matches.add(new ApproximateMatch(start, textIndex + 1, score));
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Finds the latest start offset s such that pattern matches text[s, end)
+     * with the given edit distance, by running the edit distance table over
+     * the reversed pattern and the text read backwards from end.
+     */
+    private static int findStart(CharSequence pattern, CharSequence text, int end, int distance) {
+        int patternLength = pattern.length();
+        int window = Math.min(end, patternLength + distance);
+
+        // column[i] is the distance between the last i pattern characters and
+        // the text characters read so far
+        int[] column = new int[patternLength + 1];
+        for (int i = 0; i <= patternLength; i++) {
+            column[i] = i;
+        }
+        if (column[patternLength] == distance) {
+            return end;
+        }
+        for (int length = 1; length <= window; length++) {
+            char c = text.charAt(end - length);
+            int diagonal = column[0];
+            column[0] = length;
+            for (int i = 1; i <= patternLength; i++) {
+                int above = column[i];
+                int cost = pattern.charAt(patternLength - i) == c ? 0 : 1;
+                column[i] = Math.min(Math.min(column[i - 1] + 1, above + 1), diagonal + cost);
+                diagonal = above;
+            }
+            if (column[patternLength] == distance) {
+                return end - length;
+            }
+        }
+        return end - window;
+    }
+
+    /**
+     * Shifts a multi-word bitvector left by one bit into dst, carrying
+     * between words, and sets bit 0, so that a new match can start at every
+     * text position.
+     */
+    private static void shiftIn(long[] src, long[] dst) {
+        long carry = 1L;
+        for (int w = 0; w < src.length; w++) {
+            long word = src[w];
+            dst[w] = (word << 1) | carry;
+            carry = word >>> 63;
+        }
+    }
+
+    /**
+     * For every character of the pattern, the bitvector of positions where
+     * it occurs. Latin-1 characters are looked up in an array, others in a
+     * map, and characters not in the pattern share an all-zero mask.
+     */
+    private static class PatternMasks {
+        private final int words;
+        private final long[][] latin1 = new long[256][];
+        private final Map<Character, long[]> others = new HashMap<>();
+        private final long[] empty;
+
+        private PatternMasks(CharSequence pattern) {
+            words = (pattern.length() + 63) >>> 6;
+            empty = new long[words];
+            for (int i = 0; i < pattern.length(); i++) {
+                char c = pattern.charAt(i);
+                long[] mask = get(c);
+                if (mask == empty) {
+                    mask = new long[words];
+                    if (c < 256) {
+                        latin1[c] = mask;
+                    } else {
+                        others.put(c, mask);
+                    }
+                }
+                mask[i >>> 6] |= 1L << (i & 63);
+            }
+        }
+
+        private long[] get(char c) {
+            long[] mask = c < 256 ? latin1[c] : others.get(c);
+            return mask == null ? empty : mask;
+        }
+    }
+}
+
+/**
+ * A match found by approximate search: the text offsets it spans and its
+ * distance from the pattern.
+ */
+public class ApproximateMatch {
+
+    private final int start;
+    private final int end;
+    private final int distance;
+
+    /**
+     * Creates a match.
+     *
+     * @param start    The offset of the first matched character.
+     * @param end      The offset just after the last matched character.
+     * @param distance The number of errors in the match.
+     */
+    public ApproximateMatch(int start, int end, int distance) {
+        this.start = start;
+        this.end = end;
+        this.distance = distance;
+    }
+
+    /**
+     * Gets the start offset.
+     *
+     * @return The offset of the first matched character.
+     */
+    public int getStart() {
+        return start;
+    }
+
+    /**
+     * Gets the end offset.
+     *
+     * @return The offset just after the last matched character.
+     */
+    public int getEnd() {
+        return end;
+    }
+
+    /**
+     * Gets the distance.
+     *
+     * @return The number of errors in the match.
+     */
+    public int getDistance() {
+        return distance;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o != null && o instanceof ApproximateMatch) {
+            ApproximateMatch m = (ApproximateMatch) o;
+            return start == m.start && end == m.end && distance == m.distance;
+        } else {
+            return false;
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        return (start * 31 + end) * 31 + distance;
+    }
+
+    @Override
+    public String toString() {
+        return "Match from " + start + " to " + end + " with distance " + distance;
+    }
+}
+
+/**
+ * An index over a fixed text that answers many pattern queries without
+ * rescanning the text, so that each query takes time proportional to the
+ * pattern length plus the number of matches.
+ *
+ * The suffix array is built in linear time with SA-IS (induced sorting),
+ * and the LCP array from it with Kasai's algorithm. Queries run on an
+ * FM-index over the Burrows-Wheeler transform of the text. Backward search
+ * narrows down the range of suffixes that start with the pattern in two
+ * rank lookups per pattern character, and the range size is the count.
+ * Rank lookups read a checkpoint table of character counts and then scan
+ * at most one checkpoint interval of the transform.
+ *
+ * A full index keeps the whole suffix array and LCP array, and reads
+ * occurrences directly out of the range. A compressed index only keeps the
+ * suffix array entries for every sampleRate-th text position and walks
+ * the transform backwards, at most sampleRate - 1 steps, to find each
+ * occurrence. That makes it several times smaller than the text's suffix
+ * array.
+ *
+ * Indexes can be written to a file and opened again without rebuilding.
+ * File layout, all values big-endian:
+ *
+ * header:      int magic, int format version, int text length n,
+ *              int alphabet size s, int row of the end marker,
+ *              int checkpoint interval, int sample rate (0 if full)
+ * alphabet:    char[s], then char[n + 1] transform as alphabet indices,
+ *              padded to a multiple of 4 bytes
+ * counts:      int[s] first row of each character
+ * checkpoints: int[s * ((n + 1) / interval + 1)]
+ * full:        int[n + 1] suffix array, int[n + 1] LCP array
+ * compressed:  long[(n + 64) / 64] sampled rows, then the sampled suffix
+ *              array entries in row order
+ */
+public class SuffixIndex {
+
+    private static final int MAGIC = 0x53554658;
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = 28;
+
+    private final int length;
+    private final char[] alphabet;
+    private final char[] bwt;
+    private final int endRow;
+    private final int[] firstRow;
+    private final int interval;
+    private final int[] checkpoints;
+    private final int sampleRate;
+
+    // full index
+    private final int[] suffixArray;
+    private final int[] lcp;
+
+    // compressed index
+    private final long[] sampledRows;
+    private final int[] sampledRanks;
+    private final int[] samples;
+
+    /**
+     * Builds a full index over the text, keeping the suffix array and the
+     * LCP array.
+     *
+     * @param text The text to index.
+     * @throws IllegalArgumentException If the text is null.
+     */
+    public SuffixIndex(CharSequence text) {
+        this(text, 0);
+    }
+
+    /**
+     * Builds a compressed index over the text, keeping only every
+     * sampleRate-th suffix array entry. Larger rates save more memory and
+     * make each reported occurrence slower to find.
+     *
+     * @param text       The text to index.
+     * @param sampleRate The distance between sampled text positions, or 0
+     *                   for a full index.
+     * @throws IllegalArgumentException If the text is null or the sample
+     *                                  rate is negative.
+     */
+    public SuffixIndex(CharSequence text, int sampleRate) {
+        if (text == null) {
+            throw new IllegalArgumentException("Text cannot be null.");
+        }
+        if (sampleRate < 0) {
+            throw new IllegalArgumentException("Sample rate cannot be negative.");
+        }
+        length = text.length();
+        this.sampleRate = sampleRate;
+        int rows = length + 1;
+
+        boolean[] present = new boolean[Character.MAX_VALUE + 1];
+        int alphabetSize = 0;
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (!present[c]) {
+                present[c] = true;
+                alphabetSize++;
+            }
+        }
+        alphabet = new char[alphabetSize];
+        int[] symbolOf = new int[Character.MAX_VALUE + 1];
+        for (int c = 0, next = 0; c <= Character.MAX_VALUE; c++) {
+            if (present[c]) {
+                alphabet[next] = (char) c;
+                symbolOf[c] = ++next;
+            }
+        }
+
+        // symbols are alphabet index + 1, with a unique smallest 0 at the end
+        int[] symbols = new int[rows];
+        for (int i = 0; i < length; i++) {
+            symbols[i] = symbolOf[text.charAt(i)];
+        }
+        int[] sa = new int[rows];
+        sais(symbols, sa, rows, alphabetSize + 1);
+
+        bwt = new char[rows];
+        int end = 0;
+        for (int row = 0; row < rows; row++) {
+            if (sa[row] == 0) {
+                end = row;
+            } else {
+                bwt[row] = (char) (symbols[sa[row] - 1] - 1);
+            }
+        }
+        endRow = end;
+
+        firstRow = new int[alphabetSize];
+        int[] frequency = new int[alphabetSize];
+        for (int i = 0; i < length; i++) {
+            frequency[symbols[i] - 1]++;
+        }
+        for (int c = 0, row = 1; c < alphabetSize; c++) {
+            firstRow[c] = row;
+            row += frequency[c];
+        }
+
+        int step = 64;
+        while (step < 4 * alphabetSize) {
+            step <<= 1;
+        }
+        interval = step;
+        checkpoints = new int[alphabetSize * (rows / interval + 1)];
+        int[] running = new int[alphabetSize];
+        for (int row = 0; row < rows; row++) {
+            if (row % interval == 0) {
+                System.arraycopy(running, 0, checkpoints, row / interval * alphabetSize, alphabetSize);
+            }
+            if (row != endRow) {
+                running[bwt[row]]++;
+            }
+        }
+        if (rows % interval == 0) {
+            System.arraycopy(running, 0, checkpoints, rows / interval * alphabetSize, alphabetSize);
+        }
+
+        if (sampleRate == 0) {
+            suffixArray = sa;
+            lcp = kasai(symbols, sa, rows);
+            sampledRows = null;
+            sampledRanks = null;
+            samples = null;
+        } else {
+            suffixArray = null;
+            lcp = null;
+            sampledRows = new long[(rows + 63) >>> 6];
+            int count = 0;
+            for (int row = 0; row < rows; row++) {
+                if (sa[row] % sampleRate == 0) {
+                    sampledRows[row >>> 6] |= 1L << (row & 63);
+                    count++;
+                }
+            }
+            samples = new int[count];
+            for (int row = 0, next = 0; row < rows; row++) {
+                if (sa[row] % sampleRate == 0) {
+                    samples[next++] = sa[row];
+                }
+            }
+            sampledRanks = rankBlocks(sampledRows);
+        }
+    }
+
+    private SuffixIndex(int length, char[] alphabet, char[] bwt, int endRow, int[] firstRow,
+                        int interval, int[] checkpoints, int sampleRate, int[] suffixArray,
+                        int[] lcp, long[] sampledRows, int[] samples) {
+        this.length = length;
+        this.alphabet = alphabet;
+        this.bwt = bwt;
+        this.endRow = endRow;
+        this.firstRow = firstRow;
+        this.interval = interval;
+        this.checkpoints = checkpoints;
+        this.sampleRate = sampleRate;
+        this.suffixArray = suffixArray;
+        this.lcp = lcp;
+        this.sampledRows = sampledRows;
+        this.sampledRanks = sampledRows == null ? null : rankBlocks(sampledRows);
+        this.samples = samples;
+    }
+
+    /**
+     * Counts the occurrences of a pattern in the text. Overlapping
+     * occurrences are all counted.
+     *
+     * @param pattern The pattern to count.
+     * @return The number of occurrences, or 0 if the pattern is empty.
+     * @throws IllegalArgumentException If the pattern is null.
+     */
+    public int count(CharSequence pattern) {
+        long range = range(pattern);
+        return (int) (range >>> 32) - (int) range;
+    }
+
+    /**
+     * Finds the start offset of every occurrence of a pattern in the text.
+     *
+     * The offsets are listed in the order of the suffixes they start, which
+     * is not the order they appear in the text. Sort the list if that order
+     * is needed.
+     *
+     * @param pattern The pattern to search for.
+     * @return List containing the starting index of each occurrence.
+     * @throws IllegalArgumentException If the pattern is null.
+     */
+    public List<Integer> occurrences(CharSequence pattern) {
+        long range = range(pattern);
+        int low = (int) range;
+        int high = (int) (range >>> 32);
+        List<Integer> found = new ArrayList<>(high - low);
+        for (int row = low; row < high; row++) {
+            found.add(suffixArray != null ? suffixArray[row] : locate(row));
+        }
+        return found;
+    }
+
+    /**
+     * Gets the length of the indexed text.
+     *
+     * @return The text length.
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Checks whether this index samples the suffix array instead of keeping
+     * all of it.
+     *
+     * @return True if the index is compressed.
+     */
+    public boolean isCompressed() {
+        return suffixArray == null;
+    }
+
+    /**
+     * Gets an entry of the suffix array: the start offset of the suffix
+     * that is the given rank in sorted order.
+     *
+     * @param rank The rank, from 0 to length() - 1.
+     * @return The start offset of that suffix.
+     * @throws IllegalArgumentException If the rank is out of range.
+     * @throws IllegalStateException If the index is compressed.
+     */
+    public int suffixAt(int rank) {
+        checkRank(rank);
+        return suffixArray[rank + 1];
+    }
+
+    /**
+     * Gets an entry of the LCP array: the length of the longest common
+     * prefix of the suffix of the given rank and the suffix just before it
+     * in sorted order.
+     *
+     * @param rank The rank, from 0 to length() - 1.
+     * @return The common prefix length, which is 0 for rank 0.
+     * @throws IllegalArgumentException If the rank is out of range.
+     * @throws IllegalStateException If the index is compressed.
+     */
+    public int lcpAt(int rank) {
+        checkRank(rank);
+        return lcp[rank + 1];
+    }
+
+    /**
+     * Writes the index to a file so that it can be opened without
+     * rebuilding it.
+     *
+     * @param path The file to write to. It is replaced if it exists.
+     * @throws IOException If the file cannot be written.
+     * @throws IllegalArgumentException If the path is null.
+     */
+    public void write(Path path) throws IOException {
+        if (path == null) {
+            throw new IllegalArgumentException("Path cannot be null.");
+        }
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(path), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(length);
+            out.writeInt(alphabet.length);
+            out.writeInt(endRow);
+            out.writeInt(interval);
+            out.writeInt(sampleRate);
+
+            for (char c : alphabet) {
+                out.writeChar(c);
+            }
+            for (char c : bwt) {
+                out.writeChar(c);
+            }
+            if ((alphabet.length + bwt.length) % 2 != 0) {
+                out.writeChar(0);
+            }
+            writeInts(out, firstRow);
+            writeInts(out, checkpoints);
+            if (suffixArray != null) {
+                writeInts(out, suffixArray);
+                writeInts(out, lcp);
+            } else {
+                for (long word : sampledRows) {
+                    out.writeLong(word);
+                }
+                writeInts(out, samples);
+            }
+        }
+    }
+
+    /**
+     * Reads an index written by write(). The file is read in bulk, so this
+     * is much faster than building the index again.
+     *
+     * @param path The index file.
+     * @return The index.
+     * @throws IOException If the file cannot be read or is not an index file.
+     * @throws IllegalArgumentException If the path is null.
+     */
+    public static SuffixIndex open(Path path) throws IOException {
+        if (path == null) {
+            throw new IllegalArgumentException("Path cannot be null.");
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != MAGIC
+                    || buffer.getInt() != FORMAT_VERSION) {
+                throw new IOException("Not a suffix index file of a supported version.");
+            }
+            int length = buffer.getInt();
+            int alphabetSize = buffer.getInt();
+            int endRow = buffer.getInt();
+            int interval = buffer.getInt();
+            int sampleRate = buffer.getInt();
+            if (length < 0 || alphabetSize < 0 || endRow < 0 || endRow > length
+                    || interval <= 0 || sampleRate < 0) {
+                throw new IOException("Suffix index file is corrupt.");
+            }
+            int rows = length + 1;
+            try {
+                char[] alphabet = new char[alphabetSize];
+                char[] bwt = new char[rows];
+                CharBuffer chars = buffer.asCharBuffer();
+                chars.get(alphabet);
+                chars.get(bwt);
+                buffer.position(buffer.position() + 2 * (alphabetSize + rows + 1) / 4 * 4);
 
+                int[] firstRow = readInts(buffer, alphabetSize);
+                int[] checkpoints = readInts(buffer, alphabetSize * (rows / interval + 1));
+                if (sampleRate == 0) {
+                    int[] suffixArray = readInts(buffer, rows);
+                    int[] lcp = readInts(buffer, rows);
+                    return new SuffixIndex(length, alphabet, bwt, endRow, firstRow, interval,
+                            checkpoints, 0, suffixArray, lcp, null, null);
+                }
+                long[] sampledRows = new long[(rows + 63) >>> 6];
+                buffer.asLongBuffer().get(sampledRows);
+                buffer.position(buffer.position() + 8 * sampledRows.length);
+                int sampleCount = 0;
+                for (long word : sampledRows) {
+                    sampleCount += Long.bitCount(word);
+                }
+                int[] samples = readInts(buffer, sampleCount);
+                return new SuffixIndex(length, alphabet, bwt, endRow, firstRow, interval,
+                        checkpoints, sampleRate, null, null, sampledRows, samples);
+            } catch (BufferUnderflowException | IllegalArgumentException e) {
+                throw new IOException("Suffix index file is truncated or corrupt.", e);
+            }
+        }
+    }
+
+    /**
+     * Runs backward search and packs the resulting row range [low, high) into
+     * a long, with high in the upper 32 bits.
+     */
+    private long range(CharSequence pattern) {
+        if (pattern == null) {
+            throw new IllegalArgumentException("Pattern cannot be null.");
+        }
+        if (pattern.length() == 0 || pattern.length() > length) {
+            return 0;
+        }
+        int low = 0;
+        int high = length + 1;
+        for (int i = pattern.length() - 1; i >= 0; i--) {
+            int c = Arrays.binarySearch(alphabet, pattern.charAt(i));
+            if (c < 0) {
+                return 0;
+            }
+            low = firstRow[c] + rank(c, low);
+            high = firstRow[c] + rank(c, high);
+            if (low >= high) {
+                return 0;
+            }
+        }
+        return ((long) high << 32) | low;
+    }
 
+    /**
+     * Counts the rows before the given one whose transform character is the
+     * alphabet index c.
+     */
+    private int rank(int c, int row) {
+        int block = row / interval;
+        int count = checkpoints[block * alphabet.length + c];
+        for (int i = block * interval; i < row; i++) {
+            if (bwt[i] == c) {
+                count++;
+            }
+        }
+        // the end marker's row holds a placeholder that must not be counted
+        if (endRow >= block * interval && endRow < row && bwt[endRow] == c) {
+            count--;
+        }
+        return count;
+    }
+
+    /**
+     * Finds the text offset of a row of a compressed index, by stepping to
+     * the row of the preceding suffix until a sampled row is reached.
+     */
+    private int locate(int row) {
+        int steps = 0;
+        while ((sampledRows[row >>> 6] & (1L << (row & 63))) == 0) {
+            int c = bwt[row];
+            row = firstRow[c] + rank(c, row);
+            steps++;
+        }
+        int sample = sampledRanks[row >>> 6]
+                + Long.bitCount(sampledRows[row >>> 6] & ((1L << (row & 63)) - 1));
+        return samples[sample] + steps;
+    }
+
+    private void checkRank(int rank) {
+        if (suffixArray == null) {
+            throw new IllegalStateException("A compressed index does not keep the suffix array.");
+        }
+        if (rank < 0 || rank >= length) {
+            throw new IllegalArgumentException("Rank is out of range.");
+        }
+    }
+
+    /**
+     * Computes the number of set bits before each 64-bit word.
+     */
+    private static int[] rankBlocks(long[] bits) {
+        int[] ranks = new int[bits.length];
+        for (int i = 1; i < bits.length; i++) {
+            ranks[i] = ranks[i - 1] + Long.bitCount(bits[i - 1]);
+        }
+        return ranks;
+    }
+
+    /**
+     * SA-IS. Sorts the suffixes of s[0, n), where s[n - 1] is a unique
+     * smallest symbol 0 and all symbols are below k, into sa.
+     *
+     * Suffixes are typed S if they are smaller than the next suffix and L
+     * otherwise, and an S suffix right after an L suffix is leftmost-S
+     * (LMS). Once the LMS suffixes are in order, one left-to-right pass
+     * places the L suffixes and one right-to-left pass the S suffixes. The
+     * LMS substrings are sorted this way first and named by rank. If some
+     * names repeat, the string of names is sorted recursively, and its
+     * order is the order of the LMS suffixes.
+     */
+    private static void sais(int[] s, int[] sa, int n, int k) {
+        if (n == 1) {
+            sa[0] = 0;
+            return;
+        }
+        boolean[] sType = new boolean[n];
+        sType[n - 1] = true;
+        for (int i = n - 2; i >= 0; i--) {
+            sType[i] = s[i] < s[i + 1] || (s[i] == s[i + 1] && sType[i + 1]);
+        }
+        int[] bucket = new int[k];
+
+        // sort the LMS substrings
+        bucketEnds(s, bucket, n, k);
+        Arrays.fill(sa, 0, n, -1);
+        for (int i = 1; i < n; i++) {
+            if (isLms(sType, i)) {
+                sa[--bucket[s[i]]] = i;
+            }
+        }
+        induce(s, sa, sType, bucket, n, k);
+
+        // name them, writing name of position p to sa[lmsCount + p / 2]
+        int lmsCount = 0;
+        for (int i = 0; i < n; i++) {
+            if (isLms(sType, sa[i])) {
+                sa[lmsCount++] = sa[i];
+            }
+        }
+        Arrays.fill(sa, lmsCount, n, -1);
+        int names = 0;
+        int previous = -1;
+        for (int i = 0; i < lmsCount; i++) {
+            int position = sa[i];
+            boolean different = previous < 0;
+            for (int d = 0; !different; d++) {
+                if (s[position + d] != s[previous + d] || sType[position + d] != sType[previous + d]) {
+                    different = true;
+                } else if (d > 0 && (isLms(sType, position + d) || isLms(sType, previous + d))) {
+                    break;
+                }
+            }
+            if (different) {
+                names++;
+                previous = position;
+            }
+            sa[lmsCount + position / 2] = names - 1;
+        }
+        for (int i = n - 1, j = n - 1; i >= lmsCount; i--) {
+            if (sa[i] >= 0) {
+                sa[j--] = sa[i];
+            }
+        }
+
+        // sort the LMS suffixes by their string of names
+        int[] reduced = Arrays.copyOfRange(sa, n - lmsCount, n);
+        int[] reducedSa = new int[lmsCount];
+        if (names < lmsCount) {
+            sais(reduced, reducedSa, lmsCount, names);
+        } else {
+            for (int i = 0; i < lmsCount; i++) {
+                reducedSa[reduced[i]] = i;
+            }
+        }
+
+        // place the sorted LMS suffixes and induce everything else from them
+        for (int i = 1, j = 0; i < n; i++) {
+            if (isLms(sType, i)) {
+                reduced[j++] = i;
+            }
+        }
+        bucketEnds(s, bucket, n, k);
+        Arrays.fill(sa, 0, n, -1);
+        for (int i = lmsCount - 1; i >= 0; i--) {
+            int position = reduced[reducedSa[i]];
+            sa[--bucket[s[position]]] = position;
+        }
+        induce(s, sa, sType, bucket, n, k);
+    }
+
+    /**
+     * Places the L suffixes in a left-to-right pass from bucket starts,
+     * then the S suffixes in a right-to-left pass from bucket ends.
+     */
+    private static void induce(int[] s, int[] sa, boolean[] sType, int[] bucket, int n, int k) {
+        bucketStarts(s, bucket, n, k);
+        for (int i = 0; i < n; i++) {
+            int j = sa[i] - 1;
+            if (j >= 0 && !sType[j]) {
+                sa[bucket[s[j]]++] = j;
+            }
+        }
+        bucketEnds(s, bucket, n, k);
+        for (int i = n - 1; i >= 0; i--) {
+            int j = sa[i] - 1;
+            if (j >= 0 && sType[j]) {
+                sa[--bucket[s[j]]] = j;
+            }
+        }
+    }
+
+    private static boolean isLms(boolean[] sType, int i) {
+        return i > 0 && sType[i] && !sType[i - 1];
+    }
+
+    private static void bucketStarts(int[] s, int[] bucket, int n, int k) {
+        Arrays.fill(bucket, 0);
+        for (int i = 0; i < n; i++) {
+            bucket[s[i]]++;
+        }
+        for (int c = 0, sum = 0; c < k; c++) {
+            int size = bucket[c];
+            bucket[c] = sum;
+            sum += size;
+        }
+    }
+
+    private static void bucketEnds(int[] s, int[] bucket, int n, int k) {
+        Arrays.fill(bucket, 0);
+        for (int i = 0; i < n; i++) {
+            bucket[s[i]]++;
+        }
+        for (int c = 0, sum = 0; c < k; c++) {
+            sum += bucket[c];
+            bucket[c] = sum;
+        }
+    }
+
+    /**
+     * Kasai's algorithm. Walks the suffixes in text order, where the common
+     * prefix with the previous suffix in sorted order shrinks by at most one
+     * per step, so the total work is linear.
+     */
+    private static int[] kasai(int[] s, int[] sa, int n) {
+        int[] rankOf = new int[n];
+        for (int i = 0; i < n; i++) {
+            rankOf[sa[i]] = i;
+        }
+        int[] lcp = new int[n];
+        int h = 0;
+        for (int i = 0; i < n; i++) {
+            int rank = rankOf[i];
+            if (rank == 0) {
+                h = 0;
+                continue;
+            }
+            int j = sa[rank - 1];
+            // the unique end symbol stops the scan before it runs off the text
+            while (s[i + h] == s[j + h]) {
+                h++;
+            }
+            lcp[rank] = h;
+            if (h > 0) {
+                h--;
+            }
+        }
+        return lcp;
+    }
+
+    private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+        for (int value : values) {
+            out.writeInt(value);
+        }
+    }
+
+    private static int[] readInts(ByteBuffer buffer, int count) {
+        int[] values = new int[count];
+        buffer.asIntBuffer().get(values);
+        buffer.position(buffer.position() + 4 * count);
+        return values;
+    }
+}
 
 /**
  * Comparator that allows for comparison of characters and
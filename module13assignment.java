@@ -1,3 +1,14 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
 import java.util.Set;
 import java.util.Map;
 import java.util.HashMap;
@@ -6,6 +17,22 @@ import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.ArrayDeque;
 import java.util.LinkedList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+import java.util.function.IntUnaryOperator;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Random;
 import java.util.Queue;
 
 public class GraphAlgorithms {
@@ -106,13 +133,326 @@ public class GraphAlgorithms {
             }
         }
     }
+
+    /**
+     * Performs a breadth first search over a memory-mapped graph, starting
+     * at the given vertex id. Neighbors are explored in the order they were
+     * written, which is the adjacency list order of the original graph.
+     *
+     * You may assume that the passed in graph is not null.
+     *
+     * @param start The id of the vertex to begin the bfs on.
+     * @param graph The mapped graph to search through.
+     * @return Array of vertex ids in visited order.
+     * @throws IllegalArgumentException If start is not a vertex of the graph.
+     */
+    public static int[] bfs(int start, MappedGraph graph) {
+        checkVertex(start, graph);
+        int[] queue = new int[graph.vertexCount()];
+        BitSet visited = new BitSet(graph.vertexCount());
+        int head = 0;
+        int tail = 0;
+
+        visited.set(start);
+        queue[tail++] = start;
+        while (head < tail) {
+            int v = queue[head++];
+            int end = graph.offset(v + 1);
+            for (int edge = graph.offset(v); edge < end; edge++) {
+                int neighbor = graph.target(edge);
+                if (!visited.get(neighbor)) {
+                    visited.set(neighbor);
+                    queue[tail++] = neighbor;
+                }
+            }
+        }
+
+        // the queue holds every visited vertex in visited order
+        return Arrays.copyOf(queue, tail);
+    }
+
+    /**
+     * Performs a depth first search over a memory-mapped graph, starting at
+     * the given vertex id. The visit order is the same as the recursive dfs,
+     * but an explicit stack of edge cursors is used so that deep graphs do
+     * not overflow the call stack.
+     *
+     * You may assume that the passed in graph is not null.
+     *
+     * @param start The id of the vertex to begin the dfs on.
+     * @param graph The mapped graph to search through.
+     * @return Array of vertex ids in visited order.
+     * @throws IllegalArgumentException If start is not a vertex of the graph.
+     */
+    public static int[] dfs(int start, MappedGraph graph) {
+        checkVertex(start, graph);
+        int[] order = new int[graph.vertexCount()];
+        int[] vertexStack = new int[graph.vertexCount()];
+        int[] edgeStack = new int[graph.vertexCount()];
+        BitSet visited = new BitSet(graph.vertexCount());
+        int visitedCount = 0;
+        int top = 0;
+
+        visited.set(start);
+        order[visitedCount++] = start;
+        vertexStack[top] = start;
+        edgeStack[top] = graph.offset(start);
+        top++;
+        while (top > 0) {
+            int v = vertexStack[top - 1];
+            int edge = edgeStack[top - 1];
+            if (edge == graph.offset(v + 1)) {
+                top--;
+                continue;
+            }
+            edgeStack[top - 1]++;
+
+            int neighbor = graph.target(edge);
+            if (!visited.get(neighbor)) {
+                visited.set(neighbor);
+                order[visitedCount++] = neighbor;
+                vertexStack[top] = neighbor;
+                edgeStack[top] = graph.offset(neighbor);
+                top++;
+            }
+        }
+
+        return Arrays.copyOf(order, visitedCount);
+    }
+
+    /**
+     * Runs Prim's algorithm over a memory-mapped graph, starting at the given
+     * vertex id. Instead of Edge objects, the MST is returned as the index of
+     * the edge used to reach each vertex, so that no per-edge objects are
+     * created even for very large graphs. The source of an edge can be found
+     * with graph.source(edge) and its weight with graph.weight(edge).
+     *
+     * Candidate edges are kept in a heap of primitive longs packing the
+     * weight and the edge index, with ties broken by edge index.
+     *
+     * You may assume that the passed in graph is undirected and not null.
+     *
+     * @param start The id of the vertex to begin Prims on.
+     * @param graph The mapped graph we are applying Prims to.
+     * @return Array where entry v is the index of the MST edge leading into
+     *         v, and -1 for start, or null if there is no valid MST.
+     * @throws IllegalArgumentException If start is not a vertex of the graph.
+     */
+    public static int[] prims(int start, MappedGraph graph) {
+        int vertexCount = graph.vertexCount();
+        if (start < 0 || start >= vertexCount) {
+            throw new IllegalArgumentException("Start vertex is not in the graph.");
+        }
+
+        int[] parentEdges = new int[vertexCount];
+        boolean[] visited = new boolean[vertexCount];
+        LongMinHeap heap = new LongMinHeap();
+        parentEdges[start] = -1;
+        visited[start] = true;
+        int visitedCount = 1;
+        addAdjEdgesToHeap(start, graph, heap, visited);
+
+        while (!heap.isEmpty() && visitedCount < vertexCount) {
+            int edge = (int) heap.poll();
+            int destination = graph.target(edge);
+            if (!visited[destination]) {
+                parentEdges[destination] = edge;
+                visited[destination] = true;
+                visitedCount++;
+                addAdjEdgesToHeap(destination, graph, heap, visited);
+            }
+        }
+
+        if (visitedCount < vertexCount) {
+            return null;
+        } else {
+            return parentEdges;
+        }
+    }
+
+    private static void addAdjEdgesToHeap(int vertex, MappedGraph graph, LongMinHeap heap, boolean[] visited) {
+        int end = graph.offset(vertex + 1);
+        for (int edge = graph.offset(vertex); edge < end; edge++) {
+            if (!visited[graph.target(edge)]) {
+                heap.add(edgeKey(graph.weight(edge), edge));
+            }
+        }
+    }
+
+    /**
+     * Finds the connected components of the input graph and returns the
+     * component id of every vertex. Ids run from 0 to the number of
+     * components minus one, numbered in the order the components are first
+     * met in the vertex set. Edges are treated as undirected, so for a
+     * directed graph these are the weakly connected components.
+     *
+     * This replaces running bfs from every unvisited vertex. The adjacency
+     * list is flattened to int ids and all edges are merged in parallel
+     * through a lock-free union-find, so the work is spread across cores.
+     *
+     * You may assume that the passed in graph is not null.
+     *
+     * @param <T>   The generic typing of the data.
+     * @param graph The graph to search through.
+     * @return Map from every vertex to its component id.
+     */
+    public static <T> Map<Vertex<T>, Integer> connectedComponents(Graph<T> graph) {
+        FlatGraph<T> flat = new FlatGraph<>(graph);
+        int vertexCount = flat.vertices.length;
+        int[] components = parallelComponents(vertexCount, i -> flat.offsets[i], e -> flat.targets[e]);
+        Map<Vertex<T>, Integer> result = new HashMap<>(vertexCount * 2);
+        for (int i = 0; i < vertexCount; i++) {
+            result.put(flat.vertices[i], components[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Finds the connected components of a memory-mapped graph, in the same
+     * way as connectedComponents(Graph), reading the edges straight from the
+     * mapped file.
+     *
+     * You may assume that the passed in graph is not null.
+     *
+     * @param graph The mapped graph to search through.
+     * @return Array where entry v is the component id of vertex v.
+     */
+    public static int[] connectedComponents(MappedGraph graph) {
+        return parallelComponents(graph.vertexCount(), graph::offset, graph::target);
+    }
+
+    /**
+     * Merges every edge through a concurrent union-find and then numbers the
+     * resulting sets. Roots are always linked towards the smaller id with a
+     * compare-and-set, which keeps the structure acyclic without locks, and
+     * finds use path halving.
+     */
+    private static int[] parallelComponents(int vertexCount, IntUnaryOperator offset, IntUnaryOperator target) {
+        AtomicIntegerArray parent = new AtomicIntegerArray(vertexCount);
+        IntStream.range(0, vertexCount).parallel().forEach(v -> parent.set(v, v));
+
+        IntStream.range(0, vertexCount).parallel().forEach(v -> {
+            int end = offset.applyAsInt(v + 1);
+            for (int edge = offset.applyAsInt(v); edge < end; edge++) {
+                union(parent, v, target.applyAsInt(edge));
+            }
+        });
+
+        int[] roots = new int[vertexCount];
+        IntStream.range(0, vertexCount).parallel().forEach(v -> roots[v] = find(parent, v));
+
+        // a root is the smallest id in its set, so it is seen before any member
+        int[] components = new int[vertexCount];
+        int componentCount = 0;
+        for (int v = 0; v < vertexCount; v++) {
+            if (roots[v] == v) {
+                components[v] = componentCount++;
+            } else {
+                components[v] = components[roots[v]];
+            }
+        }
+        return components;
+    }
+
+    private static int find(AtomicIntegerArray parent, int x) {
+        int p = parent.get(x);
+        while (p != x) {
+            int grandparent = parent.get(p);
+            parent.compareAndSet(x, p, grandparent);
+            x = grandparent;
+            p = parent.get(x);
+        }
+        return x;
+    }
+
+    private static void union(AtomicIntegerArray parent, int x, int y) {
+        while (true) {
+            x = find(parent, x);
+            y = find(parent, y);
+            if (x == y) {
+                return;
+            }
+            if (x < y) {
+                int temp = x;
+                x = y;
+                y = temp;
+            }
+            if (parent.compareAndSet(x, x, y)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Packs an edge into a heap key that orders by weight, then by edge
+     * index. The signed weight goes in the high bits and the non-negative
+     * index in the low bits.
+     */
+    static long edgeKey(int weight, int edge) {
+        return ((long) weight << 32) | edge;
+    }
+
+    private static void checkVertex(int vertex, MappedGraph graph) {
+        if (vertex < 0 || vertex >= graph.vertexCount()) {
+            throw new IllegalArgumentException("Start vertex is not in the graph.");
+        }
+    }
+
+    /**
+     * Binary min-heap of primitive longs, used to avoid boxing candidate
+     * edges in the mapped version of prims and in GraphQueryExecutor.
+     */
+    static class LongMinHeap {
+        private long[] heap = new long[64];
+        private int size;
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        void clear() {
+            size = 0;
+        }
+
+        void add(long value) {
+            if (size == heap.length) {
+                heap = Arrays.copyOf(heap, size * 2);
+            }
+            int i = size++;
+            while (i > 0 && heap[(i - 1) / 2] > value) {
+                heap[i] = heap[(i - 1) / 2];
+                i = (i - 1) / 2;
+            }
+            heap[i] = value;
+        }
+
+        long poll() {
+            long min = heap[0];
+            long last = heap[--size];
+            int i = 0;
+            while (2 * i + 1 < size) {
+                int child = 2 * i + 1;
+                if (child + 1 < size && heap[child + 1] < heap[child]) {
+                    child++;
+                }
+                if (heap[child] >= last) {
+                    break;
+                }
+                heap[i] = heap[child];
+                i = child;
+            }
+            heap[i] = last;
+            return min;
+        }
+    }
 }
 
 public class Edge<T> implements Comparable<Edge<? super T>> {
 
-    private Vertex<T> u;
-    private Vertex<T> v;
-    private int weight;
+    private final Vertex<T> u;
+    private final Vertex<T> v;
+    private final int weight;
+    private final int hash;
 
     /**
      * Creates a directed edge from vertex u to vertex v. Any single edge is
@@ -132,6 +472,9 @@ public class Edge<T> implements Comparable<Edge<? super T>> {
         this.u = u;
         this.v = v;
         this.weight = weight;
+        // the endpoints are packed in order so that (u, v) and (v, u) hash apart
+        long endpoints = ((long) u.hashCode() << 32) | (v.hashCode() & 0xFFFFFFFFL);
+        this.hash = (int) mix(mix(endpoints) ^ weight);
     }
 
     /**
@@ -173,7 +516,7 @@ public class Edge<T> implements Comparable<Edge<? super T>> {
 
     @Override
     public int hashCode() {
-        return u.hashCode() ^ v.hashCode() ^ weight;
+        return hash;
     }
 
     @Override
@@ -185,6 +528,16 @@ public class Edge<T> implements Comparable<Edge<? super T>> {
     public String toString() {
         return "Edge from " + u + " to " + v + " with weight " + weight;
     }
+
+    /**
+     * Finalization step of MurmurHash3's 64-bit hash, which spreads every
+     * input bit over the whole output. VertexDistance hashes with it too.
+     */
+    static long mix(long x) {
+        x = (x ^ (x >>> 33)) * 0xff51afd7ed558ccdL;
+        x = (x ^ (x >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return x ^ (x >>> 33);
+    }
 }
 
 public class Graph<T> {
@@ -254,109 +607,1754 @@ public class Graph<T> {
     }
 }
 
-public class Vertex<T> {
+/**
+ * A read-only graph stored in a compact binary file and memory-mapped, so
+ * that even very large graphs can be queried milliseconds after opening
+ * without building Vertex, Edge or adjacency list objects on the heap.
+ *
+ * Vertices are numbered 0..n-1 and the edges are kept in compressed sparse
+ * row (CSR) form: the outgoing edges of vertex v are the edge indices
+ * offset(v) to offset(v + 1) - 1, each with a target and a weight. Every
+ * vertex keeps the label it had in the original graph, taken from
+ * toString() of its data.
+ *
+ * File layout, all values big-endian:
+ *
+ * header:  int magic, int format version, int vertex count n,
+ *          int edge count m, long label data length L
+ * labels:  int[n + 1] label offsets, then L bytes of UTF-8 label data,
+ *          padded to a multiple of 4 bytes
+ * offsets: int[n + 1]
+ * targets: int[m]
+ * weights: int[m]
+ */
+public class MappedGraph implements AutoCloseable {
 
-    private T data;
+    private static final int MAGIC = 0x47524146;
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = 24;
+
+    // every array is mapped as one buffer, and a mapping is at most 2 GB
+    private static final int MAX_INTS = Integer.MAX_VALUE / 4;
+
+    private final FileChannel channel;
+    private final int vertexCount;
+    private final int edgeCount;
+    private final IntBuffer labelOffsets;
+    private final ByteBuffer labelData;
+    private final IntBuffer offsets;
+    private final IntBuffer targets;
+    private final IntBuffer weights;
+    private Map<String, Integer> labelIds;
+
+    private MappedGraph(FileChannel channel) throws IOException {
+        this.channel = channel;
+        ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+        if (header.getInt() != MAGIC || header.getInt() != FORMAT_VERSION) {
+            throw new IOException("Not a graph file of a supported version.");
+        }
+        vertexCount = header.getInt();
+        edgeCount = header.getInt();
+        long labelBytes = header.getLong();
+        if (vertexCount < 0 || vertexCount >= MAX_INTS || edgeCount < 0 || edgeCount > MAX_INTS
+                || labelBytes < 0 || labelBytes > Integer.MAX_VALUE) {
+            throw new IOException("Graph file header is corrupt.");
+        }
+
+        long position = HEADER_BYTES;
+        labelOffsets = mapInts(position, vertexCount + 1);
+        position += 4L * (vertexCount + 1);
+        labelData = channel.map(FileChannel.MapMode.READ_ONLY, position, labelBytes);
+        position += pad(labelBytes);
+        offsets = mapInts(position, vertexCount + 1);
+        position += 4L * (vertexCount + 1);
+        targets = mapInts(position, edgeCount);
+        position += 4L * edgeCount;
+        weights = mapInts(position, edgeCount);
+    }
 
     /**
-     * Creates a Vertex object holding the given data.
+     * Opens a graph file written by write() and maps it into memory. The
+     * file is only read lazily by the operating system as it is queried.
      *
-     * @param data The object that is stored in this Vertex.
-     * @throws IllegalArgumentException If data is null.
+     * @param path The graph file.
+     * @return The mapped graph.
+     * @throws IOException If the file cannot be read or is not a graph file.
+     * @throws IllegalArgumentException If the path is null.
      */
-    public Vertex(T data) {
-        if (data == null) {
-            throw new IllegalArgumentException("Data cannot be null.");
+    public static MappedGraph open(Path path) throws IOException {
+        if (path == null) {
+            throw new IllegalArgumentException("Path cannot be null.");
+        }
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new MappedGraph(channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
         }
-        this.data = data;
     }
 
     /**
-     * Gets the data.
+     * Converts a graph into the binary format and writes it to the given
+     * path. Vertex ids are assigned in the iteration order of the vertex set,
+     * and every vertex keeps the neighbor order of its adjacency list, so
+     * traversals over the mapped graph visit vertices in the same order as
+     * the GraphAlgorithms methods on the original graph.
      *
-     * @return The data of this vertex.
+     * @param <T>   The generic typing of the data.
+     * @param graph The graph to write.
+     * @param path  The file to write to. It is replaced if it exists.
+     * @throws IOException If the file cannot be written.
+     * @throws IllegalArgumentException If any of the arguments are null or if
+     *                                  the graph is too large to be mapped,
+     *                                  since open() maps every array as one
+     *                                  buffer of at most 2 GB: that is, more
+     *                                  than Integer.MAX_VALUE / 4 edges, at
+     *                                  least Integer.MAX_VALUE / 4 vertices,
+     *                                  or more than Integer.MAX_VALUE bytes
+     *                                  of labels.
      */
-    public T getData() {
-        return data;
-    }
+    public static <T> void write(Graph<T> graph, Path path) throws IOException {
+        if (graph == null || path == null) {
+            throw new IllegalArgumentException("Arguments cannot be null.");
+        }
 
-    @Override
-    public boolean equals(Object o) {
-        if (o != null && o instanceof Vertex) {
-            return data.equals(((Vertex<?>) o).data);
-        } else {
-            return false;
+        Map<Vertex<T>, List<VertexDistance<T>>> adjList = graph.getAdjList();
+        List<Vertex<T>> vertices = new ArrayList<>(graph.getVertices());
+        Map<Vertex<T>, Integer> ids = new HashMap<>();
+        byte[][] labels = new byte[vertices.size()][];
+        long labelBytes = 0;
+        long edges = 0;
+        for (int i = 0; i < vertices.size(); i++) {
+            ids.put(vertices.get(i), i);
+            labels[i] = vertices.get(i).toString().getBytes(StandardCharsets.UTF_8);
+            labelBytes += labels[i].length;
+            edges += adjList.get(vertices.get(i)).size();
+        }
+        if (edges > MAX_INTS || vertices.size() >= MAX_INTS || labelBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Graph is too large for the file format.");
+        }
+
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(path), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(vertices.size());
+            out.writeInt((int) edges);
+            out.writeLong(labelBytes);
+
+            int labelOffset = 0;
+            out.writeInt(labelOffset);
+            for (byte[] label : labels) {
+                labelOffset += label.length;
+                out.writeInt(labelOffset);
+            }
+            for (byte[] label : labels) {
+                out.write(label);
+            }
+            for (long i = labelBytes; i < pad(labelBytes); i++) {
+                out.writeByte(0);
+            }
+
+            int edgeOffset = 0;
+            out.writeInt(edgeOffset);
+            for (Vertex<T> vertex : vertices) {
+                edgeOffset += adjList.get(vertex).size();
+                out.writeInt(edgeOffset);
+            }
+            for (Vertex<T> vertex : vertices) {
+                for (VertexDistance<T> neighbor : adjList.get(vertex)) {
+                    out.writeInt(ids.get(neighbor.getVertex()));
+                }
+            }
+            for (Vertex<T> vertex : vertices) {
+                for (VertexDistance<T> neighbor : adjList.get(vertex)) {
+                    out.writeInt(neighbor.getDistance());
+                }
+            }
         }
     }
 
-    @Override
-    public int hashCode() {
-        return data.hashCode();
+    /**
+     * Gets the number of vertices.
+     *
+     * @return The vertex count.
+     */
+    public int vertexCount() {
+        return vertexCount;
     }
 
-    @Override
-    public String toString() {
-        return data.toString();
+    /**
+     * Gets the number of directed edges.
+     *
+     * @return The edge count.
+     */
+    public int edgeCount() {
+        return edgeCount;
     }
-}
 
-public final class VertexDistance<T> implements Comparable<VertexDistance<? super T>> {
+    /**
+     * Gets the index of the first outgoing edge of a vertex. The outgoing
+     * edges of v are offset(v) up to, but not including, offset(v + 1).
+     *
+     * @param vertex The vertex id, from 0 to vertexCount().
+     * @return The index of the vertex's first edge.
+     */
+    public int offset(int vertex) {
+        return offsets.get(vertex);
+    }
 
-    private final Vertex<T> vertex;
-    private final int distance;
+    /**
+     * Gets the vertex an edge points to.
+     *
+     * @param edge The edge index.
+     * @return The target vertex id.
+     */
+    public int target(int edge) {
+        return targets.get(edge);
+    }
 
     /**
-     * Creates a pairing of vertex and distance to that vertex.
+     * Gets the weight of an edge.
      *
-     * @param vertex   the Vertex to be stored.
-     * @param distance the integer representing the distance to this Vertex
-     *                 from the previous Vertex.
+     * @param edge The edge index.
+     * @return The edge weight.
      */
-    public VertexDistance(Vertex<T> vertex, int distance) {
-        this.vertex = vertex;
-        this.distance = distance;
+    public int weight(int edge) {
+        return weights.get(edge);
     }
 
     /**
-     * Gets the vertex.
+     * Gets the vertex an edge starts from, by binary searching the offsets.
      *
-     * @return The vertex.
+     * @param edge The edge index.
+     * @return The source vertex id.
      */
-    public Vertex<T> getVertex() {
-        return vertex;
+    public int source(int edge) {
+        return FlatGraph.source(edge, vertexCount, offsets::get);
     }
 
     /**
-     * Gets the distance
+     * Gets the label of a vertex, which is toString() of the data of the
+     * vertex in the original graph.
      *
-     * @return The distance.
+     * @param vertex The vertex id.
+     * @return The vertex label.
      */
-    public int getDistance() {
-        return distance;
+    public String label(int vertex) {
+        int start = labelOffsets.get(vertex);
+        byte[] bytes = new byte[labelOffsets.get(vertex + 1) - start];
+        labelData.get(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
     }
 
-    @Override
-    public boolean equals(Object o) {
-        if (o != null && o instanceof VertexDistance<?>) {
-            VertexDistance<?> e = (VertexDistance<?>) o;
-            return distance == e.distance && vertex.equals(e.vertex);
-        } else {
-            return false;
+    /**
+     * Looks up a vertex id by its label. The label index is built on the
+     * first call.
+     *
+     * @param label The vertex label.
+     * @return The vertex id, or -1 if no vertex has that label.
+     */
+    public synchronized int idOf(String label) {
+        if (labelIds == null) {
+            labelIds = new HashMap<>(vertexCount * 2);
+            for (int i = 0; i < vertexCount; i++) {
+                labelIds.put(label(i), i);
+            }
         }
+        return labelIds.getOrDefault(label, -1);
     }
 
+    /**
+     * Closes the underlying file. The mapped buffers stay readable until they
+     * are garbage collected.
+     *
+     * @throws IOException If the file cannot be closed.
+     */
     @Override
-    public int hashCode() {
-        return vertex.hashCode() ^ distance;
+    public void close() throws IOException {
+        channel.close();
     }
 
-    @Override
-    public int compareTo(VertexDistance<? super T> pair) {
-        return this.getDistance() - pair.getDistance();
+    private IntBuffer mapInts(long position, int count) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, 4L * count).asIntBuffer();
     }
 
-    @Override
-    public String toString() {
-        return "Pair with vertex " + vertex + " and distance " + distance;
+    private static long pad(long bytes) {
+        return (bytes + 3) & ~3L;
+    }
+}
+
+/**
+ * The adjacency list of a Graph flattened to int vertex ids in compressed
+ * sparse row (CSR) form, the same layout MappedGraph keeps on disk: the
+ * outgoing edges of vertex v are the edge indices offsets[v] to
+ * offsets[v + 1] - 1. Vertex ids follow the iteration order of the vertex
+ * set, and edges keep the neighbor order of the adjacency list.
+ *
+ * Used by the algorithms that run many passes over the same graph, so that
+ * they read primitive arrays instead of hashing Vertex objects.
+ */
+final class FlatGraph<T> {
+
+    final Vertex<T>[] vertices;
+    final Map<Vertex<T>, Integer> ids;
+    final int[] offsets;
+    final int[] targets;
+    final int[] weights;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    FlatGraph(Graph<T> graph) {
+        Map<Vertex<T>, List<VertexDistance<T>>> adjList = graph.getAdjList();
+        int vertexCount = graph.getVertices().size();
+        vertices = (Vertex<T>[]) new Vertex[vertexCount];
+        ids = new HashMap<>(vertexCount * 2);
+        offsets = new int[vertexCount + 1];
+        for (Vertex<T> vertex : graph.getVertices()) {
+            int id = ids.size();
+            vertices[id] = vertex;
+            ids.put(vertex, id);
+            offsets[id + 1] = offsets[id] + adjList.get(vertex).size();
+        }
+
+        // the id map is only read from here on, so it can be shared
+        targets = new int[offsets[vertexCount]];
+        weights = new int[offsets[vertexCount]];
+        IntStream.range(0, vertexCount).parallel().forEach(i -> {
+            List<VertexDistance<T>> neighbors = adjList.get(vertices[i]);
+            for (int j = 0; j < neighbors.size(); j++) {
+                targets[offsets[i] + j] = ids.get(neighbors.get(j).getVertex());
+                weights[offsets[i] + j] = neighbors.get(j).getDistance();
+            }
+        });
+    }
+
+    /**
+     * Runs Prim's algorithm from start, treating the graph as undirected.
+     * Candidate edges are kept in heap as primitive keys from
+     * GraphAlgorithms.edgeKey, so ties are broken by edge index.
+     *
+     * A vertex counts as visited when its stamp equals epoch, which lets
+     * callers reuse one stamps array across runs by moving to a new epoch.
+     *
+     * @return The MST with both directions of every tree edge, or null if
+     *         start cannot reach every vertex.
+     */
+    Set<Edge<T>> prims(int start, int[] stamps, int epoch, GraphAlgorithms.LongMinHeap heap) {
+        Set<Edge<T>> mst = new HashSet<>();
+        int visitedCount = 1;
+        stamps[start] = epoch;
+        heap.clear();
+        addEdgesToHeap(start, stamps, epoch, heap);
+        while (!heap.isEmpty() && visitedCount < vertices.length) {
+            int edge = (int) heap.poll();
+            int destination = targets[edge];
+            if (stamps[destination] != epoch) {
+                stamps[destination] = epoch;
+                int source = source(edge);
+                mst.add(new Edge<>(vertices[source], vertices[destination], weights[edge]));
+                mst.add(new Edge<>(vertices[destination], vertices[source], weights[edge]));
+                visitedCount++;
+                addEdgesToHeap(destination, stamps, epoch, heap);
+            }
+        }
+        return visitedCount < vertices.length ? null : mst;
+    }
+
+    private void addEdgesToHeap(int vertex, int[] stamps, int epoch, GraphAlgorithms.LongMinHeap heap) {
+        for (int edge = offsets[vertex]; edge < offsets[vertex + 1]; edge++) {
+            if (stamps[targets[edge]] != epoch) {
+                heap.add(GraphAlgorithms.edgeKey(weights[edge], edge));
+            }
+        }
+    }
+
+    /**
+     * Gets the vertex an edge starts from.
+     */
+    int source(int edge) {
+        return source(edge, vertices.length, v -> offsets[v]);
+    }
+
+    /**
+     * Finds the vertex whose edge range holds the given edge, by binary
+     * searching CSR offsets.
+     */
+    static int source(int edge, int vertexCount, IntUnaryOperator offset) {
+        int low = 0;
+        int high = vertexCount - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (offset.applyAsInt(mid) <= edge) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
     }
-}
\ No newline at end of file
+}
+
+/**
+ * A graph that can change after it is built. Vertices and edges can be
+ * added and removed in O(1) amortized time, and the adjacency list returned
+ * by getAdjList() is updated in place, so GraphAlgorithms can run on the
+ * current topology without rebuilding anything.
+ *
+ * Removing an edge moves the last entry of its source's adjacency list into
+ * the removed slot, so neighbor order is not preserved across removals.
+ * The first change to a vertex's edges also indexes its adjacency list,
+ * which takes time proportional to its out-degree.
+ */
+public class MutableGraph<T> extends Graph<T> {
+
+    // per source vertex, the slot of each entry in its adjacency list
+    private final Map<Vertex<T>, SlotIndex> slotIndexes = new HashMap<>();
+    private boolean edgesBuilt;
+    private long version;
+
+    /**
+     * Builds a mutable graph from a set of vertices and an edge list, with
+     * the same rules as Graph.
+     *
+     * @param vertices The vertex set.
+     * @param edges    The edge set.
+     * @throws IllegalArgumentException If any of the arguments are null or if
+     *                                  the vertex set doesn't contain all of the
+     *                                  vertices.
+     */
+    public MutableGraph(Set<Vertex<T>> vertices, Set<Edge<T>> edges) {
+        super(vertices, edges);
+        edgesBuilt = true;
+    }
+
+    /**
+     * Builds an empty mutable graph.
+     */
+    public MutableGraph() {
+        this(new HashSet<>(), new HashSet<>());
+    }
+
+    private MutableGraph(Set<Vertex<T>> vertices) {
+        super(vertices, new HashSet<>());
+    }
+
+    /**
+     * Bulk loads a graph from primitive edge arrays, where edge i goes from
+     * vertices[sources[i]] to vertices[targets[i]] with weight weights[i].
+     *
+     * Every adjacency list is presized from the out-degree counts, and no
+     * Edge objects are created while loading. The edge set is built
+     * lazily, the first time getEdges() is called, at the cost of one Edge
+     * per edge. addEdge and removeEdge do not need it: they find entries
+     * through a table of int slots over the adjacency list of the source
+     * vertex, built the first time that vertex's edges change, in
+     * O(out-degree) time and ints.
+     *
+     * The arrays must not describe the same (u, v, weight) edge twice. This
+     * is checked with a temporary table of int slots per adjacency list,
+     * which is dropped once loading finishes.
+     *
+     * @param <T>       The generic typing of the data.
+     * @param vertices  The vertex table that the ids index into.
+     * @param sources   The source vertex id of each edge.
+     * @param targets   The target vertex id of each edge.
+     * @param weights   The weight of each edge.
+     * @return The loaded graph.
+     * @throws IllegalArgumentException If any of the arguments are null, if
+     *                                  the edge arrays differ in length, if
+     *                                  an id is out of range, or if an edge
+     *                                  appears twice.
+     */
+    public static <T> MutableGraph<T> fromEdgeArrays(Vertex<T>[] vertices, int[] sources,
+            int[] targets, int[] weights) {
+        if (vertices == null || sources == null || targets == null || weights == null) {
+            throw new IllegalArgumentException("Arguments cannot be null.");
+        }
+        if (sources.length != targets.length || sources.length != weights.length) {
+            throw new IllegalArgumentException("Edge arrays must have the same length.");
+        }
+
+        int[] degrees = new int[vertices.length];
+        for (int i = 0; i < sources.length; i++) {
+            if (sources[i] < 0 || sources[i] >= vertices.length
+                    || targets[i] < 0 || targets[i] >= vertices.length) {
+                throw new IllegalArgumentException("Vertex set must contain all vertices of the graph.");
+            }
+            degrees[sources[i]]++;
+        }
+
+        MutableGraph<T> graph = new MutableGraph<>(new HashSet<>(Arrays.asList(vertices)));
+        Map<Vertex<T>, List<VertexDistance<T>>> adjList = graph.getAdjList();
+        List<List<VertexDistance<T>>> lists = new ArrayList<>(vertices.length);
+        for (int i = 0; i < vertices.length; i++) {
+            List<VertexDistance<T>> neighbors = new ArrayList<>(degrees[i]);
+            adjList.put(vertices[i], neighbors);
+            lists.add(neighbors);
+        }
+
+        for (int i = 0; i < sources.length; i++) {
+            lists.get(sources[i]).add(new VertexDistance<>(vertices[targets[i]], weights[i]));
+        }
+        for (List<VertexDistance<T>> neighbors : lists) {
+            if (neighbors.size() > 1 && SlotIndex.hasDuplicate(neighbors)) {
+                throw new IllegalArgumentException("Edge arrays cannot contain the same edge twice.");
+            }
+        }
+        return graph;
+    }
+
+    /**
+     * Adds a vertex with no edges.
+     *
+     * @param vertex The vertex to add.
+     * @return True if the vertex was added, false if it was already present.
+     * @throws IllegalArgumentException If the vertex is null.
+     */
+    public boolean addVertex(Vertex<T> vertex) {
+        if (vertex == null) {
+            throw new IllegalArgumentException("Vertex cannot be null.");
+        }
+        if (!getVertices().add(vertex)) {
+            return false;
+        }
+        getAdjList().put(vertex, new ArrayList<>());
+        version++;
+        return true;
+    }
+
+    /**
+     * Adds a directed edge. To add an undirected edge, add both the forward
+     * and the backwards edge.
+     *
+     * @param edge The edge to add.
+     * @return True if the edge was added, false if it was already present.
+     * @throws IllegalArgumentException If the edge is null or if either of its
+     *                                  vertices is not in the graph.
+     */
+    public boolean addEdge(Edge<T> edge) {
+        if (edge == null) {
+            throw new IllegalArgumentException("Edge cannot be null.");
+        }
+        List<VertexDistance<T>> neighbors = getAdjList().get(edge.getU());
+        if (neighbors == null || !getVertices().contains(edge.getV())) {
+            throw new IllegalArgumentException("Vertex set must contain all vertices of the graph.");
+        }
+        VertexDistance<T> entry = new VertexDistance<>(edge.getV(), edge.getWeight());
+        if (!slotIndex(edge.getU(), neighbors).add(neighbors, entry)) {
+            return false;
+        }
+        neighbors.add(entry);
+        if (edgesBuilt) {
+            super.getEdges().add(edge);
+        }
+        version++;
+        return true;
+    }
+
+    /**
+     * Removes a directed edge.
+     *
+     * @param edge The edge to remove.
+     * @return True if the edge was removed, false if it was not present.
+     * @throws IllegalArgumentException If the edge is null.
+     */
+    public boolean removeEdge(Edge<T> edge) {
+        if (edge == null) {
+            throw new IllegalArgumentException("Edge cannot be null.");
+        }
+        List<VertexDistance<T>> neighbors = getAdjList().get(edge.getU());
+        if (neighbors == null) {
+            return false;
+        }
+        VertexDistance<T> entry = new VertexDistance<>(edge.getV(), edge.getWeight());
+        int position = slotIndex(edge.getU(), neighbors).remove(neighbors, entry);
+        if (position < 0) {
+            return false;
+        }
+
+        // swap the last entry into the removed slot
+        VertexDistance<T> last = neighbors.remove(neighbors.size() - 1);
+        if (position < neighbors.size()) {
+            neighbors.set(position, last);
+        }
+        if (edgesBuilt) {
+            super.getEdges().remove(edge);
+        }
+        version++;
+        return true;
+    }
+
+    /**
+     * Gets the edge set, building it from the adjacency list first if the
+     * graph was bulk loaded.
+     *
+     * @return The edge set.
+     */
+    @Override
+    public Set<Edge<T>> getEdges() {
+        if (!edgesBuilt) {
+            buildEdges();
+        }
+        return super.getEdges();
+    }
+
+    /**
+     * Gets a counter that changes every time the graph is modified, so that
+     * results computed from the graph can tell when they are stale.
+     *
+     * @return The current version.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    private void buildEdges() {
+        edgesBuilt = true;
+        Set<Edge<T>> edges = super.getEdges();
+        for (Map.Entry<Vertex<T>, List<VertexDistance<T>>> entry : getAdjList().entrySet()) {
+            for (VertexDistance<T> neighbor : entry.getValue()) {
+                edges.add(new Edge<>(entry.getKey(), neighbor.getVertex(), neighbor.getDistance()));
+            }
+        }
+    }
+
+    private SlotIndex slotIndex(Vertex<T> source, List<VertexDistance<T>> neighbors) {
+        SlotIndex index = slotIndexes.get(source);
+        if (index == null) {
+            index = new SlotIndex(neighbors);
+            slotIndexes.put(source, index);
+        }
+        return index;
+    }
+
+    /**
+     * Open addressing hash table over one adjacency list. Each cell holds a
+     * slot of the list plus one, or 0 if empty, and entries are hashed and
+     * compared through the list, so the table itself is only ints. Linear
+     * probing with backward shift deletion keeps probe runs short without
+     * tombstones.
+     */
+    private static final class SlotIndex {
+        private int[] cells;
+        private int size;
+
+        private SlotIndex() {
+        }
+
+        private SlotIndex(List<? extends VertexDistance<?>> neighbors) {
+            if (!rebuild(neighbors, neighbors.size())) {
+                throw new IllegalStateException("Adjacency list contains the same edge twice.");
+            }
+        }
+
+        /**
+         * Checks whether two entries of the list are equal, in O(size) time.
+         */
+        private static boolean hasDuplicate(List<? extends VertexDistance<?>> neighbors) {
+            return !new SlotIndex().rebuild(neighbors, neighbors.size());
+        }
+
+        /**
+         * Records that entry will be appended to the list, unless an equal
+         * entry is already in it.
+         */
+        private boolean add(List<? extends VertexDistance<?>> neighbors, VertexDistance<?> entry) {
+            int cell = find(neighbors, entry);
+            if (cell >= 0) {
+                return false;
+            }
+            if (2 * (size + 1) > cells.length) {
+                rebuild(neighbors, size + 1);
+                cell = find(neighbors, entry);
+            }
+            cells[-cell - 1] = neighbors.size() + 1;
+            size++;
+            return true;
+        }
+
+        /**
+         * Forgets entry, and records that the last entry of the list will be
+         * moved into its slot.
+         *
+         * @return The slot of entry, or -1 if it is not in the list.
+         */
+        private int remove(List<? extends VertexDistance<?>> neighbors, VertexDistance<?> entry) {
+            int cell = find(neighbors, entry);
+            if (cell < 0) {
+                return -1;
+            }
+            int slot = cells[cell] - 1;
+            delete(neighbors, cell);
+            int lastSlot = neighbors.size() - 1;
+            if (slot != lastSlot) {
+                cells[find(neighbors, neighbors.get(lastSlot))] = slot + 1;
+            }
+            size--;
+            return slot;
+        }
+
+        /**
+         * Finds the cell holding an entry equal to key, or returns -(c + 1)
+         * where c is the empty cell that ends its probe run.
+         */
+        private int find(List<? extends VertexDistance<?>> neighbors, VertexDistance<?> key) {
+            int mask = cells.length - 1;
+            for (int cell = key.hashCode() & mask; ; cell = (cell + 1) & mask) {
+                if (cells[cell] == 0) {
+                    return -cell - 1;
+                }
+                if (neighbors.get(cells[cell] - 1).equals(key)) {
+                    return cell;
+                }
+            }
+        }
+
+        private void delete(List<? extends VertexDistance<?>> neighbors, int cell) {
+            int mask = cells.length - 1;
+            int hole = cell;
+            for (int next = (hole + 1) & mask; cells[next] != 0; next = (next + 1) & mask) {
+                int home = neighbors.get(cells[next] - 1).hashCode() & mask;
+                // move the entry back unless its home lies in (hole, next]
+                boolean stays = hole <= next ? hole < home && home <= next : hole < home || home <= next;
+                if (!stays) {
+                    cells[hole] = cells[next];
+                    hole = next;
+                }
+            }
+            cells[hole] = 0;
+        }
+
+        /**
+         * Rehashes every entry of the list into a table sized for expected
+         * entries.
+         *
+         * @return False if the list holds two equal entries.
+         */
+        private boolean rebuild(List<? extends VertexDistance<?>> neighbors, int expected) {
+            cells = new int[Math.max(4, Integer.highestOneBit(Math.max(1, 2 * expected - 1)) << 1)];
+            size = 0;
+            for (int slot = 0; slot < neighbors.size(); slot++) {
+                int cell = find(neighbors, neighbors.get(slot));
+                if (cell >= 0) {
+                    return false;
+                }
+                cells[-cell - 1] = slot + 1;
+                size++;
+            }
+            return true;
+        }
+    }
+}
+
+/**
+ * A size-bounded cache in front of GraphAlgorithms for graphs that are
+ * queried repeatedly from the same start vertices. Results are keyed by the
+ * identity of the graph, the algorithm and the start vertex, and the least
+ * recently used result is evicted once the cache is full.
+ *
+ * Each result is stored together with the version of the graph it was
+ * computed from. A MutableGraph bumps its version on every change, so a
+ * stale result is never returned; plain Graph objects never change and
+ * always have version 0. A stale result is dropped when its key is next
+ * looked up. Until then, or until it is evicted, it still takes up one
+ * slot of the capacity.
+ *
+ * Results are returned as unmodifiable views, so callers cannot corrupt
+ * what other callers will see. The cache is safe to share between threads,
+ * and algorithms run outside the lock, so two threads that miss on the same
+ * key may both compute the result.
+ */
+public class GraphQueryCache {
+
+    private final int capacity;
+    private final LinkedHashMap<Key, Entry> entries;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Creates an empty cache.
+     *
+     * @param capacity The maximum number of results to keep.
+     * @throws IllegalArgumentException If the capacity is not positive.
+     */
+    public GraphQueryCache(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive.");
+        }
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Gets the bfs order of the graph from start, as GraphAlgorithms.bfs.
+     *
+     * @param <T>   The generic typing of the data.
+     * @param start The vertex to begin the bfs on.
+     * @param graph The graph to search through.
+     * @return Unmodifiable list of vertices in visited order.
+     */
+    public <T> List<Vertex<T>> bfs(Vertex<T> start, Graph<T> graph) {
+        return get("bfs", start, graph, () -> Collections.unmodifiableList(GraphAlgorithms.bfs(start, graph)));
+    }
+
+    /**
+     * Gets the dfs order of the graph from start, as GraphAlgorithms.dfs.
+     *
+     * @param <T>   The generic typing of the data.
+     * @param start The vertex to begin the dfs on.
+     * @param graph The graph to search through.
+     * @return Unmodifiable list of vertices in visited order.
+     */
+    public <T> List<Vertex<T>> dfs(Vertex<T> start, Graph<T> graph) {
+        return get("dfs", start, graph, () -> Collections.unmodifiableList(GraphAlgorithms.dfs(start, graph)));
+    }
+
+    /**
+     * Gets the MST of the undirected graph grown from start with Prim's
+     * algorithm, as FlatGraph.prims computes it: both directions of every
+     * tree edge.
+     *
+     * @param <T>   The generic typing of the data.
+     * @param start The vertex to begin Prims on.
+     * @param graph The graph we are applying Prims to.
+     * @return Unmodifiable MST edge set, or null if there is no valid MST.
+     * @throws IllegalArgumentException If any of the arguments are null or if
+     *                                  start is not in the graph.
+     */
+    public <T> Set<Edge<T>> prims(Vertex<T> start, Graph<T> graph) {
+        return get("prims", start, graph, () -> {
+            FlatGraph<T> flat = new FlatGraph<>(graph);
+            Integer id = flat.ids.get(start);
+            if (id == null) {
+                throw new IllegalArgumentException("Start vertex is not in the graph.");
+            }
+            Set<Edge<T>> mst = flat.prims(id, new int[flat.vertices.length], 1,
+                    new GraphAlgorithms.LongMinHeap());
+            return mst == null ? null : Collections.unmodifiableSet(mst);
+        });
+    }
+
+    /**
+     * Removes every cached result. The hit and miss counts are kept.
+     */
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Gets the number of cached results.
+     *
+     * @return The current size.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Gets the number of lookups answered from the cache.
+     *
+     * @return The hit count.
+     */
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    /**
+     * Gets the number of lookups that had to run the algorithm, including
+     * lookups that found a result for an older version of the graph.
+     *
+     * @return The miss count.
+     */
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    /**
+     * Gets the number of results evicted to stay within the capacity.
+     *
+     * @return The eviction count.
+     */
+    public synchronized long getEvictionCount() {
+        return evictions;
+    }
+
+    /**
+     * Gets the fraction of lookups answered from the cache.
+     *
+     * @return The hit rate, or 0 if there have been no lookups.
+     */
+    public synchronized double getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <R> R get(String algorithm, Vertex<?> start, Graph<?> graph, Supplier<R> compute) {
+        if (start == null || graph == null) {
+            throw new IllegalArgumentException("Arguments cannot be null.");
+        }
+        Key key = new Key(graph, algorithm, start);
+        long version = versionOf(graph);
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.version == version) {
+                hits++;
+                return (R) entry.result;
+            }
+            if (entry != null) {
+                // a stale result would only hold a slot until it is evicted
+                entries.remove(key);
+            }
+            misses++;
+        }
+
+        R result = compute.get();
+        synchronized (this) {
+            // the graph may have changed while the result was computed
+            if (versionOf(graph) == version) {
+                entries.put(key, new Entry(version, result));
+                if (entries.size() > capacity) {
+                    Iterator<Key> eldest = entries.keySet().iterator();
+                    eldest.next();
+                    eldest.remove();
+                    evictions++;
+                }
+            }
+        }
+        return result;
+    }
+
+    private static long versionOf(Graph<?> graph) {
+        if (graph instanceof MutableGraph<?>) {
+            return ((MutableGraph<?>) graph).getVersion();
+        }
+        return 0;
+    }
+
+    /**
+     * Cache key comparing graphs by identity, since two equal-looking graphs
+     * are still different objects that can change independently.
+     */
+    private static final class Key {
+        private final Graph<?> graph;
+        private final String algorithm;
+        private final Vertex<?> start;
+
+        private Key(Graph<?> graph, String algorithm, Vertex<?> start) {
+            this.graph = graph;
+            this.algorithm = algorithm;
+            this.start = start;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o != null && o instanceof Key) {
+                Key k = (Key) o;
+                return graph == k.graph && algorithm.equals(k.algorithm) && start.equals(k.start);
+            } else {
+                return false;
+            }
+        }
+
+        @Override
+        public int hashCode() {
+            return (System.identityHashCode(graph) * 31 + algorithm.hashCode()) * 31 + start.hashCode();
+        }
+    }
+
+    private static final class Entry {
+        private final long version;
+        private final Object result;
+
+        private Entry(long version, Object result) {
+            this.version = version;
+            this.result = result;
+        }
+    }
+}
+
+/**
+ * Answers "can u reach v?" queries over a directed graph without running a
+ * full bfs per query. The index is built once and reflects the graph at
+ * that time.
+ *
+ * The strongly connected components are found with an iterative version of
+ * Tarjan's algorithm and condensed into a DAG. Tarjan numbers components in
+ * reverse topological order, so u can only reach v if u's component number
+ * is at least v's. Two labels are then taken from one depth first pass over
+ * the DAG:
+ *
+ * a tree interval [pre, post], which proves reachability when v lies in u's
+ * subtree of the DFS forest;
+ *
+ * a GRAIL interval [smallest post of anything reachable, post], which
+ * proves unreachability when v's interval is not contained in u's.
+ *
+ * Most queries are answered by these O(1) checks. The rest fall back to a
+ * depth first search over the DAG that skips every component whose GRAIL
+ * interval rules out v and stops as soon as a tree interval proves it.
+ */
+public class ReachabilityIndex<T> {
+
+    private final Map<Vertex<T>, Integer> ids;
+    private final int[] components;
+    private final int componentCount;
+    private final int[] dagOffsets;
+    private final int[] dagTargets;
+    private final int[] pre;
+    private final int[] post;
+    private final int[] minPost;
+    private final int[] marks;
+    private int mark;
+
+    /**
+     * Builds the index for the given directed graph.
+     *
+     * @param graph The graph to index.
+     * @throws IllegalArgumentException If the graph is null.
+     */
+    public ReachabilityIndex(Graph<T> graph) {
+        if (graph == null) {
+            throw new IllegalArgumentException("Graph cannot be null.");
+        }
+
+        FlatGraph<T> flat = new FlatGraph<>(graph);
+        ids = flat.ids;
+        int vertexCount = flat.vertices.length;
+        int[] offsets = flat.offsets;
+        int[] targets = flat.targets;
+
+        components = new int[vertexCount];
+        componentCount = tarjan(offsets, targets, components);
+
+        // condense, dropping edges inside a component and repeated edges
+        List<List<Integer>> members = new ArrayList<>(componentCount);
+        for (int c = 0; c < componentCount; c++) {
+            members.add(new ArrayList<>());
+        }
+        for (int v = 0; v < vertexCount; v++) {
+            members.get(components[v]).add(v);
+        }
+        int[] seen = new int[componentCount];
+        Arrays.fill(seen, -1);
+        dagOffsets = new int[componentCount + 1];
+        int[] dagEdges = new int[targets.length];
+        int dagEdgeCount = 0;
+        for (int c = 0; c < componentCount; c++) {
+            for (int v : members.get(c)) {
+                for (int edge = offsets[v]; edge < offsets[v + 1]; edge++) {
+                    int target = components[targets[edge]];
+                    if (target != c && seen[target] != c) {
+                        seen[target] = c;
+                        dagEdges[dagEdgeCount++] = target;
+                    }
+                }
+            }
+            dagOffsets[c + 1] = dagEdgeCount;
+        }
+        dagTargets = Arrays.copyOf(dagEdges, dagEdgeCount);
+
+        pre = new int[componentCount];
+        post = new int[componentCount];
+        minPost = new int[componentCount];
+        marks = new int[componentCount];
+        label();
+    }
+
+    /**
+     * Checks whether there is a directed path from u to v. Every vertex can
+     * reach itself.
+     *
+     * @param u The vertex the path starts at.
+     * @param v The vertex the path ends at.
+     * @return True if v is reachable from u.
+     * @throws IllegalArgumentException If either vertex is null or is not in
+     *                                  the indexed graph.
+     */
+    public boolean canReach(Vertex<T> u, Vertex<T> v) {
+        int from = components[idOf(u)];
+        int to = components[idOf(v)];
+        if (from == to) {
+            return true;
+        }
+        if (from < to || !grailContains(from, to)) {
+            return false;
+        }
+        if (treeContains(from, to)) {
+            return true;
+        }
+        return search(from, to);
+    }
+
+    /**
+     * Checks whether two vertices are in the same strongly connected
+     * component, meaning each can reach the other.
+     *
+     * @param u The first vertex.
+     * @param v The second vertex.
+     * @return True if u and v are strongly connected.
+     * @throws IllegalArgumentException If either vertex is null or is not in
+     *                                  the indexed graph.
+     */
+    public boolean stronglyConnected(Vertex<T> u, Vertex<T> v) {
+        return components[idOf(u)] == components[idOf(v)];
+    }
+
+    /**
+     * Gets the number of strongly connected components.
+     *
+     * @return The component count.
+     */
+    public int getComponentCount() {
+        return componentCount;
+    }
+
+    private boolean treeContains(int from, int to) {
+        return pre[from] <= pre[to] && post[to] <= post[from];
+    }
+
+    private boolean grailContains(int from, int to) {
+        return minPost[from] <= minPost[to] && post[to] <= post[from];
+    }
+
+    /**
+     * Depth first search over the DAG for the queries the labels cannot
+     * settle. Visited components are marked with a fresh stamp per search,
+     * so nothing has to be cleared between queries.
+     */
+    private synchronized boolean search(int from, int to) {
+        mark++;
+        ArrayDeque<Integer> stack = new ArrayDeque<>();
+        marks[from] = mark;
+        stack.push(from);
+        while (!stack.isEmpty()) {
+            int c = stack.pop();
+            for (int edge = dagOffsets[c]; edge < dagOffsets[c + 1]; edge++) {
+                int next = dagTargets[edge];
+                if (marks[next] != mark && next >= to && grailContains(next, to)) {
+                    if (treeContains(next, to)) {
+                        return true;
+                    }
+                    marks[next] = mark;
+                    stack.push(next);
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Assigns the pre and post order numbers of one DFS forest over the DAG,
+     * then the smallest post number reachable from each component. Since a
+     * component only points at lower numbered components, visiting them in
+     * increasing order sees every successor first.
+     */
+    private void label() {
+        int[] stack = new int[componentCount];
+        int[] cursor = new int[componentCount];
+        boolean[] visited = new boolean[componentCount];
+        int preCount = 0;
+        int postCount = 0;
+
+        // highest numbered components come first in topological order
+        for (int root = componentCount - 1; root >= 0; root--) {
+            if (visited[root]) {
+                continue;
+            }
+            int top = 0;
+            visited[root] = true;
+            pre[root] = preCount++;
+            stack[top] = root;
+            cursor[top] = dagOffsets[root];
+            top++;
+            while (top > 0) {
+                int c = stack[top - 1];
+                if (cursor[top - 1] == dagOffsets[c + 1]) {
+                    post[c] = postCount++;
+                    top--;
+                    continue;
+                }
+                int next = dagTargets[cursor[top - 1]++];
+                if (!visited[next]) {
+                    visited[next] = true;
+                    pre[next] = preCount++;
+                    stack[top] = next;
+                    cursor[top] = dagOffsets[next];
+                    top++;
+                }
+            }
+        }
+
+        for (int c = 0; c < componentCount; c++) {
+            int smallest = post[c];
+            for (int edge = dagOffsets[c]; edge < dagOffsets[c + 1]; edge++) {
+                smallest = Math.min(smallest, minPost[dagTargets[edge]]);
+            }
+            minPost[c] = smallest;
+        }
+    }
+
+    /**
+     * Iterative Tarjan's algorithm. Fills in the component of every vertex
+     * and returns the number of components. Components are numbered in the
+     * order they are completed, which is a reverse topological order.
+     */
+    private static int tarjan(int[] offsets, int[] targets, int[] components) {
+        int vertexCount = components.length;
+        int[] index = new int[vertexCount];
+        int[] low = new int[vertexCount];
+        boolean[] onStack = new boolean[vertexCount];
+        int[] sccStack = new int[vertexCount];
+        int[] callStack = new int[vertexCount];
+        int[] cursor = new int[vertexCount];
+        Arrays.fill(index, -1);
+        int nextIndex = 0;
+        int sccTop = 0;
+        int componentCount = 0;
+
+        for (int root = 0; root < vertexCount; root++) {
+            if (index[root] != -1) {
+                continue;
+            }
+            int top = 0;
+            callStack[top] = root;
+            cursor[top] = offsets[root];
+            top++;
+            index[root] = nextIndex;
+            low[root] = nextIndex++;
+            sccStack[sccTop++] = root;
+            onStack[root] = true;
+
+            while (top > 0) {
+                int v = callStack[top - 1];
+                if (cursor[top - 1] < offsets[v + 1]) {
+                    int w = targets[cursor[top - 1]++];
+                    if (index[w] == -1) {
+                        // recurse into w
+                        index[w] = nextIndex;
+                        low[w] = nextIndex++;
+                        sccStack[sccTop++] = w;
+                        onStack[w] = true;
+                        callStack[top] = w;
+                        cursor[top] = offsets[w];
+                        top++;
+                    } else if (onStack[w]) {
+                        low[v] = Math.min(low[v], index[w]);
+                    }
+                    continue;
+                }
+
+                // v is finished; pop its component if it is a root
+                if (low[v] == index[v]) {
+                    int w;
+                    do {
+                        w = sccStack[--sccTop];
+                        onStack[w] = false;
+                        components[w] = componentCount;
+                    } while (w != v);
+                    componentCount++;
+                }
+                top--;
+                if (top > 0) {
+                    int parent = callStack[top - 1];
+                    low[parent] = Math.min(low[parent], low[v]);
+                }
+            }
+        }
+        return componentCount;
+    }
+
+    private int idOf(Vertex<T> vertex) {
+        Integer id = vertex == null ? null : ids.get(vertex);
+        if (id == null) {
+            throw new IllegalArgumentException("Vertex is not in the graph.");
+        }
+        return id;
+    }
+}
+
+/**
+ * Runs bfs, dfs and prims queries concurrently against one shared,
+ * read-only graph.
+ *
+ * The graph is flattened once into int arrays. Every query borrows a
+ * scratch object from a pool instead of allocating its own visited set,
+ * queue and heap. The visited marks are cleared by bumping an epoch stamp
+ * rather than by refilling the array, so a reused scratch costs nothing to
+ * reset. The only per-query allocations are the returned results.
+ *
+ * By default queries run on virtual threads when the runtime provides them
+ * (Java 21 and later), and on a fixed pool of platform threads otherwise.
+ * Scratch objects are pooled rather than tied to threads, because virtual
+ * threads are created per task and would not keep a thread-local scratch.
+ *
+ * The graph must not be modified while the executor is in use.
+ */
+public class GraphQueryExecutor<T> implements AutoCloseable {
+
+    private static final int LATENCY_SAMPLES = 1 << 14;
+
+    private final ExecutorService executor;
+    private final boolean ownsExecutor;
+    private final FlatGraph<T> graph;
+    private final Vertex<T>[] vertices;
+    private final int[] offsets;
+    private final int[] targets;
+    private final int[] weights;
+    private final ConcurrentLinkedQueue<Scratch> scratchPool = new ConcurrentLinkedQueue<>();
+    private final AtomicLongArray latencies = new AtomicLongArray(LATENCY_SAMPLES);
+    private final AtomicLong sampleSlots = new AtomicLong();
+    private final AtomicLong queryCount = new AtomicLong();
+
+    /**
+     * Creates an executor over the given graph that runs queries on virtual
+     * threads if available. The thread pool is shut down by close().
+     *
+     * @param graph The graph to query.
+     * @throws IllegalArgumentException If the graph is null.
+     */
+    public GraphQueryExecutor(Graph<T> graph) {
+        this(graph, defaultExecutor(), true);
+    }
+
+    /**
+     * Creates an executor over the given graph that runs queries on the
+     * given executor service. The service is not shut down by close().
+     *
+     * @param graph    The graph to query.
+     * @param executor The executor service to run queries on.
+     * @throws IllegalArgumentException If any of the arguments are null.
+     */
+    public GraphQueryExecutor(Graph<T> graph, ExecutorService executor) {
+        this(graph, executor, false);
+    }
+
+    private GraphQueryExecutor(Graph<T> graph, ExecutorService executor, boolean ownsExecutor) {
+        if (graph == null || executor == null) {
+            throw new IllegalArgumentException("Arguments cannot be null.");
+        }
+        this.executor = executor;
+        this.ownsExecutor = ownsExecutor;
+        this.graph = new FlatGraph<>(graph);
+        vertices = this.graph.vertices;
+        offsets = this.graph.offsets;
+        targets = this.graph.targets;
+        weights = this.graph.weights;
+
+        // unwritten slots are skipped when computing percentiles
+        for (int i = 0; i < LATENCY_SAMPLES; i++) {
+            latencies.set(i, -1);
+        }
+    }
+
+    /**
+     * Runs GraphAlgorithms.bfs from start asynchronously.
+     *
+     * @param start The vertex to begin the bfs on.
+     * @return Future list of vertices in visited order.
+     * @throws IllegalArgumentException If start is null or not in the graph.
+     */
+    public CompletableFuture<List<Vertex<T>>> bfs(Vertex<T> start) {
+        int id = idOf(start);
+        return submit(scratch -> bfs(id, scratch));
+    }
+
+    /**
+     * Runs GraphAlgorithms.dfs from start asynchronously.
+     *
+     * @param start The vertex to begin the dfs on.
+     * @return Future list of vertices in visited order.
+     * @throws IllegalArgumentException If start is null or not in the graph.
+     */
+    public CompletableFuture<List<Vertex<T>>> dfs(Vertex<T> start) {
+        int id = idOf(start);
+        return submit(scratch -> dfs(id, scratch));
+    }
+
+    /**
+     * Computes the MST of the undirected graph grown from start with Prim's
+     * algorithm, asynchronously. The result holds both directions of every
+     * tree edge, as FlatGraph.prims returns it.
+     *
+     * @param start The vertex to begin Prims on.
+     * @return Future MST, completed with null if there is no valid MST.
+     * @throws IllegalArgumentException If start is null or not in the graph.
+     */
+    public CompletableFuture<Set<Edge<T>>> prims(Vertex<T> start) {
+        int id = idOf(start);
+        return submit(scratch -> prims(id, scratch));
+    }
+
+    /**
+     * Gets a latency percentile over the most recent queries, measured from
+     * the moment a query starts running until its result is ready.
+     *
+     * @param percentile The percentile, from 0 to 100.
+     * @return The latency in nanoseconds, or 0 if no query has finished.
+     * @throws IllegalArgumentException If the percentile is out of range.
+     */
+    public long getLatencyPercentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 100.");
+        }
+        int slots = (int) Math.min(sampleSlots.get(), LATENCY_SAMPLES);
+        long[] samples = new long[slots];
+        int count = 0;
+        for (int i = 0; i < slots; i++) {
+            // a slot can be claimed by a query that has not written it yet
+            long latency = latencies.get(i);
+            if (latency >= 0) {
+                samples[count++] = latency;
+            }
+        }
+        if (count == 0) {
+            return 0;
+        }
+        Arrays.sort(samples, 0, count);
+        int rank = (int) Math.ceil(percentile / 100 * count) - 1;
+        return samples[Math.max(rank, 0)];
+    }
+
+    /**
+     * Gets the number of queries that have finished.
+     *
+     * @return The query count.
+     */
+    public long getQueryCount() {
+        return queryCount.get();
+    }
+
+    /**
+     * Shuts down the thread pool if this executor created it.
+     */
+    @Override
+    public void close() {
+        if (ownsExecutor) {
+            executor.shutdown();
+        }
+    }
+
+    private <R> CompletableFuture<R> submit(Function<Scratch, R> query) {
+        return CompletableFuture.supplyAsync(() -> {
+            long startTime = System.nanoTime();
+            Scratch scratch = scratchPool.poll();
+            if (scratch == null) {
+                scratch = new Scratch(vertices.length);
+            }
+            try {
+                return query.apply(scratch);
+            } finally {
+                scratchPool.offer(scratch);
+                long slot = sampleSlots.getAndIncrement();
+                latencies.set((int) (slot % LATENCY_SAMPLES), System.nanoTime() - startTime);
+                queryCount.incrementAndGet();
+            }
+        }, executor);
+    }
+
+    private List<Vertex<T>> bfs(int start, Scratch scratch) {
+        int[] queue = scratch.vertexStack;
+        int head = 0;
+        int tail = 0;
+        scratch.reset();
+        scratch.visit(start);
+        queue[tail++] = start;
+        while (head < tail) {
+            int v = queue[head++];
+            for (int edge = offsets[v]; edge < offsets[v + 1]; edge++) {
+                if (scratch.visit(targets[edge])) {
+                    queue[tail++] = targets[edge];
+                }
+            }
+        }
+        return toVertices(queue, tail);
+    }
+
+    private List<Vertex<T>> dfs(int start, Scratch scratch) {
+        int[] order = scratch.order;
+        int[] stack = scratch.vertexStack;
+        int[] cursor = scratch.cursor;
+        int visitedCount = 0;
+        int top = 0;
+        scratch.reset();
+        scratch.visit(start);
+        order[visitedCount++] = start;
+        stack[top] = start;
+        cursor[top++] = offsets[start];
+        while (top > 0) {
+            int v = stack[top - 1];
+            if (cursor[top - 1] == offsets[v + 1]) {
+                top--;
+                continue;
+            }
+            int neighbor = targets[cursor[top - 1]++];
+            if (scratch.visit(neighbor)) {
+                order[visitedCount++] = neighbor;
+                stack[top] = neighbor;
+                cursor[top++] = offsets[neighbor];
+            }
+        }
+        return toVertices(order, visitedCount);
+    }
+
+    private Set<Edge<T>> prims(int start, Scratch scratch) {
+        scratch.reset();
+        return graph.prims(start, scratch.stamps, scratch.epoch, scratch.heap);
+    }
+
+    private List<Vertex<T>> toVertices(int[] order, int count) {
+        List<Vertex<T>> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(vertices[order[i]]);
+        }
+        return result;
+    }
+
+    private int idOf(Vertex<T> vertex) {
+        Integer id = vertex == null ? null : graph.ids.get(vertex);
+        if (id == null) {
+            throw new IllegalArgumentException("Start vertex is not in the graph.");
+        }
+        return id;
+    }
+
+    private static ExecutorService defaultExecutor() {
+        try {
+            // looked up reflectively so this still compiles before Java 21
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        }
+    }
+
+    /**
+     * Reusable per-query state. A vertex counts as visited when its stamp
+     * equals the current epoch, so reset() only has to move to a new epoch.
+     */
+    private static final class Scratch {
+        private final int[] stamps;
+        private final int[] vertexStack;
+        private final int[] cursor;
+        private final int[] order;
+        private final GraphAlgorithms.LongMinHeap heap = new GraphAlgorithms.LongMinHeap();
+        private int epoch;
+
+        private Scratch(int vertexCount) {
+            stamps = new int[vertexCount];
+            vertexStack = new int[vertexCount];
+            cursor = new int[vertexCount];
+            order = new int[vertexCount];
+        }
+
+        private void reset() {
+            epoch++;
+            if (epoch == 0) {
+                // the stamps wrapped around, so old stamps could look current
+                Arrays.fill(stamps, 0);
+                epoch = 1;
+            }
+        }
+
+        private boolean visit(int vertex) {
+            if (stamps[vertex] == epoch) {
+                return false;
+            }
+            stamps[vertex] = epoch;
+            return true;
+        }
+    }
+}
+
+public class Vertex<T> {
+
+    private T data;
+
+    /**
+     * Creates a Vertex object holding the given data.
+     *
+     * @param data The object that is stored in this Vertex.
+     * @throws IllegalArgumentException If data is null.
+     */
+    public Vertex(T data) {
+        if (data == null) {
+            throw new IllegalArgumentException("Data cannot be null.");
+        }
+        this.data = data;
+    }
+
+    /**
+     * Gets the data.
+     *
+     * @return The data of this vertex.
+     */
+    public T getData() {
+        return data;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o != null && o instanceof Vertex) {
+            return data.equals(((Vertex<?>) o).data);
+        } else {
+            return false;
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        return data.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return data.toString();
+    }
+}
+
+public final class VertexDistance<T> implements Comparable<VertexDistance<? super T>> {
+
+    private final Vertex<T> vertex;
+    private final int distance;
+    private int hash;
+
+    /**
+     * Creates a pairing of vertex and distance to that vertex.
+     *
+     * @param vertex   the Vertex to be stored.
+     * @param distance the integer representing the distance to this Vertex
+     *                 from the previous Vertex.
+     */
+    public VertexDistance(Vertex<T> vertex, int distance) {
+        this.vertex = vertex;
+        this.distance = distance;
+    }
+
+    /**
+     * Gets the vertex.
+     *
+     * @return The vertex.
+     */
+    public Vertex<T> getVertex() {
+        return vertex;
+    }
+
+    /**
+     * Gets the distance
+     *
+     * @return The distance.
+     */
+    public int getDistance() {
+        return distance;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o != null && o instanceof VertexDistance<?>) {
+            VertexDistance<?> e = (VertexDistance<?>) o;
+            return distance == e.distance && vertex.equals(e.vertex);
+        } else {
+            return false;
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        // computed lazily since the constructor does not reject a null vertex
+        int h = hash;
+        if (h == 0) {
+            h = (int) Edge.mix(((long) vertex.hashCode() << 32) | (distance & 0xFFFFFFFFL));
+            hash = h;
+        }
+        return h;
+    }
+
+    @Override
+    public int compareTo(VertexDistance<? super T> pair) {
+        return this.getDistance() - pair.getDistance();
+    }
+
+    @Override
+    public String toString() {
+        return "Pair with vertex " + vertex + " and distance " + distance;
+    }
+}
+
+/**
+ * Measures how evenly Edge and VertexDistance hashes spread over the
+ * buckets of a HashMap, compared with the XOR hashes they replaced, on a
+ * grid graph with Integer vertices and both directions of every edge.
+ *
+ * Run it with an optional grid side length, 300 by default. The module 14
+ * Edge and VertexDistance hash the same way, so one run covers both files.
+ */
+public class HashDistribution {
+
+    /**
+     * Prints the number of distinct hashes and the longest bucket chain for
+     * the old and new hashes of every edge and adjacency pair of the grid.
+     *
+     * @param args Optionally, the side length of the grid.
+     */
+    public static void main(String[] args) {
+        int side = args.length > 0 ? Integer.parseInt(args[0]) : 300;
+        List<Vertex<Integer>> vertices = new ArrayList<>(side * side);
+        for (int i = 0; i < side * side; i++) {
+            vertices.add(new Vertex<>(i));
+        }
+
+        Random random = new Random(42);
+        List<Edge<Integer>> edges = new ArrayList<>();
+        for (int row = 0; row < side; row++) {
+            for (int col = 0; col < side; col++) {
+                Vertex<Integer> u = vertices.get(row * side + col);
+                if (col + 1 < side) {
+                    addBothWays(edges, u, vertices.get(row * side + col + 1), 1 + random.nextInt(100));
+                }
+                if (row + 1 < side) {
+                    addBothWays(edges, u, vertices.get((row + 1) * side + col), 1 + random.nextInt(100));
+                }
+            }
+        }
+
+        int[] oldEdgeHashes = new int[edges.size()];
+        int[] newEdgeHashes = new int[edges.size()];
+        int[] oldPairHashes = new int[edges.size()];
+        int[] newPairHashes = new int[edges.size()];
+        for (int i = 0; i < edges.size(); i++) {
+            Edge<Integer> edge = edges.get(i);
+            VertexDistance<Integer> pair = new VertexDistance<>(edge.getV(), edge.getWeight());
+            oldEdgeHashes[i] = edge.getU().hashCode() ^ edge.getV().hashCode() ^ edge.getWeight();
+            newEdgeHashes[i] = edge.hashCode();
+            oldPairHashes[i] = pair.getVertex().hashCode() ^ pair.getDistance();
+            newPairHashes[i] = pair.hashCode();
+        }
+
+        int buckets = Integer.highestOneBit(edges.size() - 1) << 1;
+        System.out.println(edges.size() + " edges, " + buckets + " buckets");
+        report("Edge old", oldEdgeHashes, buckets);
+        report("Edge new", newEdgeHashes, buckets);
+        report("VertexDistance old", oldPairHashes, buckets);
+        report("VertexDistance new", newPairHashes, buckets);
+    }
+
+    private static void addBothWays(List<Edge<Integer>> edges, Vertex<Integer> u, Vertex<Integer> v, int weight) {
+        edges.add(new Edge<>(u, v, weight));
+        edges.add(new Edge<>(v, u, weight));
+    }
+
+    private static void report(String name, int[] hashes, int buckets) {
+        Set<Integer> distinct = new HashSet<>();
+        int[] chains = new int[buckets];
+        int longest = 0;
+        for (int hash : hashes) {
+            distinct.add(hash);
+            // the same spreading HashMap applies before picking a bucket
+            int bucket = (hash ^ (hash >>> 16)) & (buckets - 1);
+            longest = Math.max(longest, ++chains[bucket]);
+        }
+        System.out.println(name + ": " + distinct.size() + " distinct hashes, longest chain " + longest);
+    }
+}